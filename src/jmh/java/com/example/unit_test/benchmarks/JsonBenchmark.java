@@ -0,0 +1,85 @@
+package com.example.unit_test.benchmarks;
+
+import com.example.unit_test.dto.ErrorResponse;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.unit_test.utils.Constants.MISSING_CREDENTIALS_EXCEPTION_MESSAGE;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    // cbor is what callers get with Accept: application/cbor
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectWriter userResponseWriter;
+    private ObjectWriter errorResponseWriter;
+    private ObjectReader userRequestReader;
+    private ObjectReader userResponseReader;
+
+    private UserResponse userResponse;
+    private ErrorResponse errorResponse;
+    private byte[] userRequestJson;
+    private byte[] userResponseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured the way Spring Boot configures the MVC message converters
+        ObjectMapper mapper = format.equals("cbor") ? Jackson2ObjectMapperBuilder.cbor().build() : Jackson2ObjectMapperBuilder.json().build();
+        userResponseWriter = mapper.writerFor(UserResponse.class);
+        errorResponseWriter = mapper.writerFor(ErrorResponse.class);
+        userRequestReader = mapper.readerFor(UserRequest.class);
+        userResponseReader = mapper.readerFor(UserResponse.class);
+
+        userResponse = UserResponse.builder()
+                .id("665f1c2e8b3e4a6d2c9f0a11")
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .firstName("Dummy")
+                .lastName("Dummy")
+                .phoneNumber("054328712")
+                .build();
+        errorResponse = new ErrorResponse(MISSING_CREDENTIALS_EXCEPTION_MESSAGE);
+        userRequestJson = mapper.writeValueAsBytes(UserRequest.builder()
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .firstName("Dummy")
+                .lastName("Dummy")
+                .phoneNumber("054328712")
+                .build());
+        userResponseJson = userResponseWriter.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeUserResponse() throws IOException {
+        return userResponseWriter.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeErrorResponse() throws IOException {
+        return errorResponseWriter.writeValueAsBytes(errorResponse);
+    }
+
+    @Benchmark
+    public UserRequest deserializeUserRequest() throws IOException {
+        return userRequestReader.readValue(userRequestJson);
+    }
+
+    @Benchmark
+    public UserResponse deserializeUserResponse() throws IOException {
+        return userResponseReader.readValue(userResponseJson);
+    }
+}
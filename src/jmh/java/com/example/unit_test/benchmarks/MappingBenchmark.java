@@ -0,0 +1,100 @@
+package com.example.unit_test.benchmarks;
+
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserResponseCodec;
+import com.example.unit_test.services.UserMapper;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity/DTO mappings, and the two ways of turning a {@code users} document into a
+ * {@link UserResponse}: Spring's entity mapping followed by the builder copy, versus
+ * {@link UserResponseCodec} reading the BSON directly. Run with {@code -prof gc} to compare
+ * allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private final DecoderContext decoderContext = DecoderContext.builder().build();
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final UserResponseCodec userResponseCodec = new UserResponseCodec();
+
+    private User user;
+    private UserRequest userRequest;
+    private byte[] userBson;
+    private MappingMongoConverter converter;
+
+    @Setup
+    public void setUp() {
+        user = User.builder()
+                .id(new ObjectId().toHexString())
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .firstName("Dummy")
+                .lastName("Dummy")
+                .phoneNumber("054328712")
+                .build();
+        userRequest = UserRequest.builder()
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .firstName("Dummy")
+                .lastName("Dummy")
+                .phoneNumber("054328712")
+                .build();
+        Document document = new Document("_id", new ObjectId(user.getId()))
+                .append("userName", user.getUserName())
+                .append("email", user.getEmail())
+                .append("firstName", user.getFirstName())
+                .append("lastName", user.getLastName())
+                .append("phoneNumber", user.getPhoneNumber())
+                .append("_class", User.class.getName());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        userBson = buffer.toByteArray();
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+    }
+
+    @Benchmark
+    public UserResponse mapUserToUserResponse() {
+        return UserMapper.mapUserToUserResponse(user);
+    }
+
+    @Benchmark
+    public User mapUserRequestToUser() {
+        return UserMapper.mapUserRequestToUser(userRequest);
+    }
+
+    @Benchmark
+    public UserResponse decodeThroughEntity() {
+        Document document = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(userBson)), decoderContext);
+        return UserMapper.mapUserToUserResponse(converter.read(User.class, document));
+    }
+
+    @Benchmark
+    public UserResponse decodeWithUserResponseCodec() {
+        return userResponseCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(userBson)), decoderContext);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.unit_test.benchmarks;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.dto.UserSearchResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.InMemoryUserRepository;
+import com.example.unit_test.services.UserExistenceFilter;
+import com.example.unit_test.services.UserLookupCoalescer;
+import com.example.unit_test.services.UserResponseCache;
+import com.example.unit_test.services.UserSearchIndex;
+import com.example.unit_test.services.UserService;
+import com.example.unit_test.services.UserSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int USERS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private UserService userService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        for (int i = 0; i < USERS; i++) {
+            userRepository.insert(User.builder()
+                    .userName("user" + i)
+                    .email("user" + i + "@example.com")
+                    .firstName("First")
+                    .lastName("Last")
+                    .phoneNumber("0587963587")
+                    .build());
+        }
+        UserProperties userProperties = new UserProperties();
+        userProperties.getCache().setEnabled(cacheEnabled);
+        UserExistenceFilter userExistenceFilter = new UserExistenceFilter(userRepository, userProperties);
+        userExistenceFilter.rebuild();
+        UserSearchIndex userSearchIndex = new UserSearchIndex(userRepository, userProperties);
+        userSearchIndex.build();
+        userService = new UserService(userRepository, new UserResponseCache(userProperties), userProperties,
+                userExistenceFilter, event -> {
+                    userExistenceFilter.onUsersCreated((UsersCreatedEvent) event);
+                    userSearchIndex.onUsersCreated((UsersCreatedEvent) event);
+                }, userSearchIndex, new UserLookupCoalescer(userProperties), new UserSnapshot(userRepository, userProperties));
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        private int next;
+
+        String nextUserName() {
+            next = (next + 1) % USERS;
+            return "user" + next;
+        }
+    }
+
+    @Benchmark
+    public UserResponse getUserByUserName(Lookup lookup) {
+        return userService.getUserByUserName(lookup.nextUserName());
+    }
+
+    @Benchmark
+    public UserSearchResponse searchUserNames(Lookup lookup) {
+        // prefixes like "user12" match more users than the limit
+        String userName = lookup.nextUserName();
+        return userService.searchUsers(userName.substring(0, Math.min(6, userName.length())), 10, "userName");
+    }
+
+    @Benchmark
+    public void createUser() {
+        long id = sequence.incrementAndGet();
+        userService.createUser(UserRequest.builder()
+                .userName("new" + id)
+                .email("new" + id + "@example.com")
+                .firstName("First")
+                .lastName("Last")
+                .phoneNumber("0587963587")
+                .build());
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.unit_test.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running instance over HTTP with a mix of lookups, misses, creates and duplicate creates,
+ * then prints throughput and latency percentiles per operation. Arguments are {@code key=value}:
+ * <ul>
+ *     <li>{@code url} base URL, default {@code http://localhost:9191}</li>
+ *     <li>{@code concurrency} requests in flight at most, default 64</li>
+ *     <li>{@code rate} requests per second to start, 0 (default) sends as fast as responses come back</li>
+ *     <li>{@code duration} measured time, default 30s, after a {@code warmup} of 5s</li>
+ *     <li>{@code users} users created up front for the lookups and duplicates, default 10000</li>
+ *     <li>{@code mix} relative weights, default {@code read=70,miss=10,create=10,duplicate=10}</li>
+ * </ul>
+ * With a fixed rate, latency is measured from when a request was due rather than when it was sent,
+ * so a stalled server shows up in the percentiles instead of slowing the generator down.
+ */
+public class LoadTest {
+    private static final int SEED_BATCH_SIZE = 500;
+
+    enum Operation {
+        READ(Set.of(200)),
+        MISS(Set.of(404)),
+        // 202 when the server runs with the write-behind queue
+        CREATE(Set.of(201, 202)),
+        DUPLICATE(Set.of(409, 202));
+
+        private final Set<Integer> expectedStatuses;
+
+        Operation(Set<Integer> expectedStatuses) {
+            this.expectedStatuses = expectedStatuses;
+        }
+    }
+
+    record Options(URI url, int concurrency, int rate, Duration duration, Duration warmup, int users,
+                   Map<Operation, Integer> mix) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int at = arg.indexOf('=');
+                if (at < 0) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                values.put(arg.substring(0, at), arg.substring(at + 1));
+            }
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String weight : values.getOrDefault("mix", "read=70,miss=10,create=10,duplicate=10").split(",")) {
+                String[] parts = weight.split("=");
+                mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            return new Options(
+                    URI.create(values.getOrDefault("url", "http://localhost:9191")),
+                    Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                    Integer.parseInt(values.getOrDefault("rate", "0")),
+                    DurationStyle.detectAndParse(values.getOrDefault("duration", "30s")),
+                    DurationStyle.detectAndParse(values.getOrDefault("warmup", "5s")),
+                    Integer.parseInt(values.getOrDefault("users", "10000")),
+                    mix);
+        }
+    }
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    // unique per run, so repeated runs against the same server do not collide
+    private final String run = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> unexpected = new EnumMap<>(Operation.class);
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong scheduled = new AtomicLong();
+    private final Operation[] weighted;
+    private Duration measured;
+
+    LoadTest(Options options) {
+        this.options = options;
+        List<Operation> operations = new ArrayList<>();
+        options.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weighted = operations.toArray(Operation[]::new);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            unexpected.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTest loadTest = new LoadTest(options);
+        System.out.printf("Seeding %d users at %s%n", options.users(), options.url());
+        loadTest.seed();
+        System.out.printf("Running %s (after %s warmup) with concurrency %d, rate %s, mix %s%n", options.duration(),
+                options.warmup(), options.concurrency(), options.rate() == 0 ? "unlimited" : options.rate() + "/s", options.mix());
+        loadTest.run();
+        loadTest.report(System.out);
+    }
+
+    void seed() throws IOException, InterruptedException {
+        for (int from = 0; from < options.users(); from += SEED_BATCH_SIZE) {
+            StringBuilder batch = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + SEED_BATCH_SIZE, options.users()); i++) {
+                batch.append(i == from ? "" : ",").append(userJson(seededUserName(i), "seed" + i));
+            }
+            HttpResponse<Void> response = client.send(post("/api/user/batch", batch.append(']').toString()),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+        }
+    }
+
+    void run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        long interval = options.rate() == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / options.rate();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < options.concurrency(); i++) {
+            workers.add(Thread.ofVirtual().name("load-" + i).start(() -> work(start, measureFrom, end, interval)));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // a server that cannot keep up with the rate finishes the scheduled requests late
+        measured = Duration.ofNanos(System.nanoTime() - measureFrom);
+    }
+
+    private void work(long start, long measureFrom, long end, long interval) {
+        while (true) {
+            long due;
+            if (interval == 0) {
+                due = System.nanoTime();
+            } else {
+                due = start + scheduled.getAndIncrement() * interval;
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            if (due >= end) {
+                return;
+            }
+            Operation operation = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+            int status;
+            try {
+                status = client.send(request(operation), HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException ex) {
+                status = -1;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (due >= measureFrom) {
+                latencies.get(operation).recordValue(System.nanoTime() - due);
+                if (!operation.expectedStatuses.contains(status)) {
+                    unexpected.get(operation).incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case READ -> get("/api/user/" + seededUserName(random.nextInt(options.users())));
+            case MISS -> get("/api/user/" + run + "-missing-" + random.nextLong(Long.MAX_VALUE));
+            case CREATE -> {
+                long id = created.incrementAndGet();
+                yield post("/api/user", userJson(run + "-created-" + id, "created" + id));
+            }
+            case DUPLICATE -> post("/api/user", userJson(seededUserName(random.nextInt(options.users())), "duplicate" + random.nextLong(Long.MAX_VALUE)));
+        };
+    }
+
+    void report(PrintStream out) {
+        double seconds = measured.toNanos() / 1e9;
+        Histogram total = new Histogram(3);
+        long totalUnexpected = 0;
+        out.printf("%n%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "unexpected");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            totalUnexpected += unexpected.get(operation).get();
+            print(out, operation.name().toLowerCase(), histogram, seconds, unexpected.get(operation).get());
+        }
+        print(out, "total", total, seconds, totalUnexpected);
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, double seconds, long unexpected) {
+        out.printf("%-10s %10d %10.0f %10.3f %10.3f %10.3f %10.3f %10d%n", name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                unexpected);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private String seededUserName(int i) {
+        return run + "-user-" + i;
+    }
+
+    private String userJson(String userName, String emailLocalPart) {
+        return "{\"userName\":\"" + userName + "\",\"email\":\"" + run + "-" + emailLocalPart + "@load.test\","
+                + "\"firstName\":\"Load\",\"lastName\":\"Test\",\"phoneNumber\":\"0587963587\"}";
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(options.url().resolve(path))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(options.url().resolve(path))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.unit_test.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * application/cbor next to JSON for callers that send the matching Content-Type and Accept.
+ * Both stacks share one CBOR mapper built from Boot's Jackson settings; JSON stays the default.
+ */
+@Configuration
+public class CborConfig {
+    // not exposed as an ObjectMapper bean, that would replace Boot's JSON mapper
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cborMapper = builder.factory(new CBORFactory()).build();
+        return new MappingJackson2CborHttpMessageConverter(cborMapper);
+    }
+
+    // WebFlux puts custom codecs ahead of the defaults and answers Accept */* with the first writer,
+    // so JSON is registered again in front of CBOR to stay the default
+    @Bean
+    public CodecCustomizer cborCodecCustomizer(ObjectMapper objectMapper, MappingJackson2CborHttpMessageConverter cborHttpMessageConverter) {
+        ObjectMapper cborMapper = cborHttpMessageConverter.getObjectMapper();
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2JsonDecoder(objectMapper));
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            // without explicit MIME types the CBOR codecs would claim application/json
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        };
+    }
+
+    // Jackson2CborEncoder only implements encodeValue, but WebFlux passes every body to encode,
+    // single values as a Mono
+    private static class SingleValueCborEncoder extends Jackson2CborEncoder {
+        SingleValueCborEncoder(ObjectMapper cborMapper) {
+            super(cborMapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> value) {
+                return value.map(body -> encodeValue(body, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
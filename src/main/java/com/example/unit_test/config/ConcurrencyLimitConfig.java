@@ -0,0 +1,49 @@
+package com.example.unit_test.config;
+
+import com.example.unit_test.controllers.ConcurrencyLimitInterceptor;
+import com.example.unit_test.services.UserConcurrencyLimits;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ConcurrencyLimitConfig {
+    // the limits follow Mongo latency, failed commands included since timeouts are the loudest signal
+    @Bean
+    public MongoClientSettingsBuilderCustomizer concurrencyLimitCustomizer(UserConcurrencyLimits limits) {
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                limits.onMongoCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                limits.onMongoCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+
+    @Configuration
+    @Profile("!reactive")
+    @RequiredArgsConstructor
+    static class WebConfig implements WebMvcConfigurer {
+        private final UserConcurrencyLimits limits;
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            if (limits.isEnabled()) {
+                registry.addInterceptor(new ConcurrencyLimitInterceptor(limits)).addPathPatterns("/api/user", "/api/user/**");
+            }
+        }
+    }
+}
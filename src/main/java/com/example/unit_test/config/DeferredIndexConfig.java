@@ -0,0 +1,26 @@
+package com.example.unit_test.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+@Configuration
+public class DeferredIndexConfig {
+    // with user.indexes.deferred the mapping context skips index creation on startup and
+    // UserIndexInitializer creates them once the application is ready
+    @Bean
+    public static BeanPostProcessor deferIndexCreation(Environment environment) {
+        boolean deferred = environment.getProperty("user.indexes.deferred", Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (deferred && bean instanceof MongoMappingContext mappingContext) {
+                    mappingContext.setAutoIndexCreation(false);
+                }
+                return bean;
+            }
+        };
+    }
+}
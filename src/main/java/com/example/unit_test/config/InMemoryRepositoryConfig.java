@@ -0,0 +1,17 @@
+package com.example.unit_test.config;
+
+import com.example.unit_test.repositories.InMemoryUserRepository;
+import com.example.unit_test.repositories.UserRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("in-memory & !partitioned")
+public class InMemoryRepositoryConfig {
+    // the Mongo auto-configuration is excluded in application-in-memory.properties, so nothing else provides one
+    @Bean
+    public UserRepository userRepository() {
+        return new InMemoryUserRepository();
+    }
+}
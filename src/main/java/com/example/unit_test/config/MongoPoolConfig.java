@@ -0,0 +1,20 @@
+package com.example.unit_test.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoPoolConfig {
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolCustomizer(UserProperties userProperties) {
+        UserProperties.Mongo.Pool pool = userProperties.getMongo().getPool();
+        return builder -> builder.applyToConnectionPoolSettings(settings -> settings
+                .maxSize(pool.getMaxSize())
+                .minSize(pool.getMinSize())
+                .maxConnecting(pool.getMaxConnecting())
+                .maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS));
+    }
+}
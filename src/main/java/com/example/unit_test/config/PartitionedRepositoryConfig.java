@@ -0,0 +1,79 @@
+package com.example.unit_test.config;
+
+import com.example.unit_test.repositories.InMemoryEmailPartitionIndex;
+import com.example.unit_test.repositories.InMemoryUserRepository;
+import com.example.unit_test.repositories.MongoEmailPartitionIndex;
+import com.example.unit_test.repositories.PartitionedUserRepository;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.repositories.UserRepositoryCustomImpl;
+import com.example.unit_test.services.UserIndexInitializer;
+import com.mongodb.client.MongoClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single users collection with a {@link PartitionedUserRepository}: one partition per
+ * database in {@code user.partitions.databases}, all on the mongod of {@code spring.data.mongodb.*}.
+ * With the in-memory profile as well, each partition is an {@link InMemoryUserRepository}.
+ */
+@Configuration
+@Profile("partitioned")
+public class PartitionedRepositoryConfig {
+    private final UserProperties userProperties;
+    private final UserIndexInitializer userIndexInitializer;
+    private final List<MongoTemplate> partitionTemplates = new ArrayList<>();
+
+    public PartitionedRepositoryConfig(UserProperties userProperties, UserIndexInitializer userIndexInitializer) {
+        this.userProperties = userProperties;
+        this.userIndexInitializer = userIndexInitializer;
+    }
+
+    @Bean
+    @Profile("!in-memory")
+    public UserRepository partitionedUserRepository(MongoClient mongoClient, MongoTemplate mongoTemplate) {
+        UserProperties.Partitions settings = userProperties.getPartitions();
+        List<UserRepository> partitions = new ArrayList<>();
+        for (String database : settings.getDatabases()) {
+            // a template of its own per database, with a mapping context that does not create indexes by itself
+            MongoTemplate template = new MongoTemplate(mongoClient, database);
+            if (!userProperties.getIndexes().isDeferred()) {
+                UserIndexInitializer.ensureIndexes(template);
+            }
+            partitionTemplates.add(template);
+            partitions.add(new MongoRepositoryFactory(template).getRepository(UserRepository.class,
+                    RepositoryComposition.RepositoryFragments.just(new UserRepositoryCustomImpl(template))));
+        }
+        return new PartitionedUserRepository(partitions,
+                new MongoEmailPartitionIndex(mongoTemplate, settings.getEmailIndexCollection(), settings.getStaleClaimAge()));
+    }
+
+    @Bean
+    @Profile("in-memory")
+    public UserRepository inMemoryPartitionedUserRepository() {
+        UserProperties.Partitions settings = userProperties.getPartitions();
+        List<UserRepository> partitions = new ArrayList<>();
+        for (int i = 0; i < settings.getDatabases().size(); i++) {
+            partitions.add(new InMemoryUserRepository());
+        }
+        return new PartitionedUserRepository(partitions, new InMemoryEmailPartitionIndex(settings.getStaleClaimAge()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createDeferredIndexes() {
+        if (userProperties.getIndexes().isDeferred()) {
+            for (MongoTemplate template : partitionTemplates) {
+                Thread.ofVirtual().name("user-index-creation-" + template.getDb().getName())
+                        .start(() -> userIndexInitializer.createIndexes(template));
+            }
+        }
+    }
+}
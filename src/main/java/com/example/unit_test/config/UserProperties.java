@@ -0,0 +1,146 @@
+package com.example.unit_test.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "user")
+public class UserProperties {
+    private Cache cache = new Cache();
+    private Create create = new Create();
+    private Mongo mongo = new Mongo();
+    private BloomFilter bloomFilter = new BloomFilter();
+    private Search search = new Search();
+    private Lookup lookup = new Lookup();
+    private Concurrency concurrency = new Concurrency();
+    private Indexes indexes = new Indexes();
+    private BulkImport bulkImport = new BulkImport();
+    private Partitions partitions = new Partitions();
+    private Snapshot snapshot = new Snapshot();
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(5);
+        // how long a "not found" answer is remembered
+        private Duration negativeTtl = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Create {
+        // insert straight away and let the unique indexes report duplicates instead of querying first
+        private boolean insertFirst = true;
+        private Async async = new Async();
+
+        @Data
+        public static class Async {
+            // answer POST /api/user with 202 and write the accepted users in batches behind the request
+            private boolean enabled = false;
+            private int queueCapacity = 10_000;
+            private int batchSize = 500;
+            // how long the writer waits for a batch to fill up
+            private Duration maxDelay = Duration.ofMillis(50);
+            // how long the outcome of an accepted request stays queryable
+            private Duration statusTtl = Duration.ofMinutes(10);
+            // how many outcomes are kept at most, the oldest are dropped first; pending requests do not count
+            private long statusMaximumSize = 100_000;
+        }
+    }
+
+    @Data
+    public static class Mongo {
+        private Pool pool = new Pool();
+
+        @Data
+        public static class Pool {
+            private int maxSize = 100;
+            private int minSize = 0;
+            private int maxConnecting = 2;
+            private Duration maxWaitTime = Duration.ofMinutes(2);
+        }
+    }
+
+    @Data
+    public static class BloomFilter {
+        private boolean enabled = true;
+        private long expectedInsertions = 1_000_000;
+        private double falsePositiveProbability = 0.01;
+    }
+
+    @Data
+    public static class Search {
+        // keep userNames and emails in memory for GET /api/user/_search
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Lookup {
+        // concurrent lookups of the same userName share one query
+        private boolean coalesce = true;
+    }
+
+    @Data
+    public static class Concurrency {
+        // shed /api/user requests with 503 once more are in flight than Mongo latency allows
+        private boolean enabled = true;
+        private Limit read = new Limit(200, 20, 1_000);
+        // kept apart so shedding writes leaves reads flowing
+        private Limit write = new Limit(50, 5, 500);
+
+        @Data
+        @AllArgsConstructor
+        @NoArgsConstructor
+        public static class Limit {
+            private int initial;
+            private int min;
+            private int max;
+        }
+    }
+
+    @Data
+    public static class Indexes {
+        // create the indexes after startup instead of during context refresh
+        private boolean deferred = false;
+    }
+
+    @Data
+    public static class BulkImport {
+        // server-side files can only be imported from below this directory; unset allows uploads only
+        private String directory;
+        // where uploads are spooled and reject files are written; unset uses java.io.tmpdir
+        private String workDirectory;
+        private int chunkSize = 1_000;
+        private int writers = 4;
+        private int maxLineLength = 64 * 1024;
+        // how long a finished job stays queryable
+        private Duration jobTtl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Partitions {
+        // one partition per database, each with its own users collection; the count decides where a userName lives
+        private List<String> databases = List.of("users_0", "users_1", "users_2", "users_3");
+        // the email -> partition claims, in the default database
+        private String emailIndexCollection = "user_email_partitions";
+        // a claim whose user was never written is taken over once it is this old
+        private Duration staleClaimAge = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Snapshot {
+        // serve userName lookups from a memory-mapped file of all users, kept across restarts
+        private boolean enabled = false;
+        // unset uses user-snapshot.bin in java.io.tmpdir
+        private String file;
+        // how often users created since the file was written are read from Mongo
+        private Duration refreshInterval = Duration.ofSeconds(30);
+        // how often the file is rewritten with them; it is written on shutdown as well
+        private Duration writeInterval = Duration.ofMinutes(10);
+    }
+}
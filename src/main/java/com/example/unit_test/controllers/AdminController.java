@@ -0,0 +1,34 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.dto.CacheStatsResponse;
+import com.example.unit_test.dto.FilterStatsResponse;
+import com.example.unit_test.services.UserExistenceFilter;
+import com.example.unit_test.services.UserResponseCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+public class AdminController {
+    private final UserResponseCache userResponseCache;
+    private final UserExistenceFilter userExistenceFilter;
+    @GetMapping("/cache")
+    @ResponseStatus(HttpStatus.OK)
+    public CacheStatsResponse getCacheStats() {
+        return userResponseCache.stats();
+    }
+    @GetMapping("/filters")
+    @ResponseStatus(HttpStatus.OK)
+    public FilterStatsResponse getFilterStats() {
+        return userExistenceFilter.stats();
+    }
+    @PostMapping("/filters/rebuild")
+    public ResponseEntity<Void> rebuildFilters() {
+        return userExistenceFilter.rebuildAsync()
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.services.UserConcurrencyLimits;
+import com.example.unit_test.utils.AdaptiveConcurrencyLimiter;
+import com.example.unit_test.utils.OverloadedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import static com.example.unit_test.utils.Constants.OVERLOADED_EXCEPTION_MESSAGE;
+
+/**
+ * Takes a slot from the read or write limit before a /api/user handler runs and gives it back
+ * once the response is complete. Over the limit the request fails fast with 503.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final UserConcurrencyLimits limits;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // an async dispatch still holds the permit of the request that started it
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter limiter = limits.forRequest(isWrite(handler));
+        if (!limiter.tryAcquire()) {
+            throw OverloadedException.withoutStackTrace(OVERLOADED_EXCEPTION_MESSAGE);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, limiter);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter limiter) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limiter.release();
+        }
+    }
+
+    // decided by the matched handler rather than the method and path, so POST /api/user/lookup stays a read
+    private static boolean isWrite(Object handler) {
+        return handler instanceof HandlerMethod handlerMethod && handlerMethod.hasMethodAnnotation(WriteLimited.class);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserLookupRequest;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.services.ReactiveUserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping("/api/user")
+public class ReactiveUserController {
+    private final ReactiveUserService reactiveUserService;
+    @GetMapping("/{userName}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<UserResponse> getUserByUserName(@PathVariable("userName") String userName) {
+        return reactiveUserService.getUserByUserName(userName);
+    }
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> createUser(@RequestBody UserRequest userRequest) {
+        return reactiveUserService.createUser(userRequest);
+    }
+    @PostMapping("/lookup")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<UserLookupResponse> lookupUsers(@RequestBody UserLookupRequest userLookupRequest) {
+        return reactiveUserService.lookupUsers(userLookupRequest);
+    }
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<List<UserCreationResult>> createUsers(@RequestBody List<UserRequest> userRequests) {
+        return reactiveUserService.createUsers(userRequests);
+    }
+}
@@ -1,28 +1,173 @@
 package com.example.unit_test.controllers;
 
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserImportResponse;
+import com.example.unit_test.dto.UserLookupRequest;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserPageResponse;
 import com.example.unit_test.dto.UserRequest;
 import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.dto.UserSearchResponse;
+import com.example.unit_test.services.UserImportService;
 import com.example.unit_test.services.UserService;
-import com.example.unit_test.utils.MissingCredentialsException;
-import com.example.unit_test.utils.DuplicateResourceException;
-import com.example.unit_test.utils.UserNotFoundException;
+import com.example.unit_test.services.UserWriteBehindQueue;
+import com.example.unit_test.utils.ETags;
+import com.example.unit_test.utils.ErrorResponses;
+import com.example.unit_test.utils.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.common.util.StringUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/api/user")
 public class UserController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final UserService userService;
-    @GetMapping("/{userName}")
+    private final ObjectMapper objectMapper;
+    private final ErrorResponses errorResponses;
+    private final UserWriteBehindQueue userWriteBehindQueue;
+    private final UserImportService userImportService;
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public UserPageResponse getUsers(@RequestParam(value = "after", required = false) String after,
+                                     @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                     @RequestParam(value = "fields", required = false) List<String> fields) throws InvalidRequestException {
+        return userService.getUsers(after, limit, fields);
+    }
+    // prefixed like /_export so a user named "search" stays reachable
+    @GetMapping("/_search")
     @ResponseStatus(HttpStatus.OK)
-    public UserResponse getUserByUserName(@PathVariable("userName") String userName) throws UserNotFoundException {
-        return userService.getUserByUserName(userName);
+    public UserSearchResponse searchUsers(@RequestParam("prefix") String prefix,
+                                          @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                          @RequestParam(value = "field", defaultValue = "userName") String field) throws InvalidRequestException {
+        return userService.searchUsers(prefix, limit, field);
+    }
+    // one JSON document per line, written while the cursor is read so memory stays flat;
+    // the underscore keeps the path clear of a user named "export"
+    @GetMapping(value = "/_export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        // flushing after every user would send a chunk per user; let the response buffer fill instead
+        ObjectWriter writer = objectMapper.writerFor(UserResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<UserResponse> users = userService.streamUsers();
+             JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            for (Iterator<UserResponse> iterator = users.iterator(); iterator.hasNext(); ) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+    // misses and rejections are expected traffic, so they are answered without throwing
+    @GetMapping("/{userName}")
+    public ResponseEntity<?> getUserByUserName(@PathVariable("userName") String userName,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean cbor = ErrorResponses.prefersCbor(accept);
+        // a changed user costs a second, full read; unchanged ones never load the document
+        if (ifNoneMatch != null) {
+            String eTag = userService.findUserVersion(userName).map(user -> ETags.of(user, cbor)).orElse(null);
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+            }
+        }
+        return userService.findUserByUserName(userName)
+                // the ETag and the body depend on the negotiated format, so caches must key on Accept
+                .<ResponseEntity<?>>map(user -> ResponseEntity.ok().eTag(ETags.of(user, cbor)).varyBy(HttpHeaders.ACCEPT).body(user))
+                .orElseGet(() -> errorResponses.userNotFound(userName, accept));
     };
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public void createUser(@RequestBody UserRequest UserRequest) throws DuplicateResourceException, MissingCredentialsException {
-        userService.createUser(UserRequest);
+    @WriteLimited
+    public ResponseEntity<?> createUser(@RequestBody UserRequest UserRequest,
+                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (userWriteBehindQueue.isEnabled()) {
+            return submitUser(UserRequest, accept);
+        }
+        UserCreationStatus status = userService.tryCreateUser(UserRequest);
+        if (status != UserCreationStatus.CREATED) {
+            return errorResponses.rejected(status, accept);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+    // only the credentials are checked up front, duplicates are reported through the request status
+    private ResponseEntity<?> submitUser(UserRequest userRequest, String accept) {
+        if (StringUtils.isBlank(userRequest.getUserName()) && StringUtils.isBlank(userRequest.getEmail())) {
+            return errorResponses.rejected(UserCreationStatus.MISSING_CREDENTIALS, accept);
+        }
+        return userWriteBehindQueue.submit(userRequest)
+                .<ResponseEntity<?>>map(pending -> ResponseEntity.accepted()
+                        .location(URI.create("/api/user/requests/" + pending.getRequestId()))
+                        .body(pending))
+                .orElseGet(() -> errorResponses.createQueueFull(accept));
+    }
+    @GetMapping("/requests/{requestId}")
+    public ResponseEntity<UserCreationResult> getCreationStatus(@PathVariable("requestId") String requestId) {
+        return ResponseEntity.of(userWriteBehindQueue.status(requestId));
+    }
+    // the body is the file; 202 with the job to poll, the import runs in the background
+    @PostMapping(value = "/import", consumes = {APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @WriteLimited
+    public ResponseEntity<UserImportResponse> importUsers(HttpServletRequest request,
+                                                          @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) throws IOException {
+        UserImportService.Format format = contentType.startsWith(TEXT_CSV_VALUE) ? UserImportService.Format.CSV : UserImportService.Format.NDJSON;
+        return importStarted(userImportService.importUpload(request.getInputStream(), format));
+    }
+    // a file below user.bulk-import.directory on the server
+    @PostMapping(value = "/import", params = "path")
+    @WriteLimited
+    public ResponseEntity<UserImportResponse> importUsersFromPath(@RequestParam("path") String path,
+                                                                  @RequestParam(value = "format", required = false) String format) throws IOException, InvalidRequestException {
+        return importStarted(userImportService.importFile(path, importFormat(path, format)));
+    }
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<UserImportResponse> getImportStatus(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.of(userImportService.status(jobId));
+    }
+    private static ResponseEntity<UserImportResponse> importStarted(UserImportResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/user/import/" + job.getJobId()))
+                .body(job);
+    }
+    private static UserImportService.Format importFormat(String path, String format) throws InvalidRequestException {
+        String name = format != null ? format : path.substring(path.lastIndexOf('.') + 1);
+        return switch (name.toLowerCase()) {
+            case "csv" -> UserImportService.Format.CSV;
+            case "ndjson", "jsonl" -> UserImportService.Format.NDJSON;
+            default -> throw new InvalidRequestException("Unknown import format " + name + ", expected csv or ndjson");
+        };
+    }
+    @PostMapping("/lookup")
+    @ResponseStatus(HttpStatus.OK)
+    public UserLookupResponse lookupUsers(@RequestBody UserLookupRequest userLookupRequest) throws InvalidRequestException {
+        return userService.lookupUsers(userLookupRequest);
+    }
+    @PostMapping("/batch")
+    @WriteLimited
+    @ResponseStatus(HttpStatus.OK)
+    public List<UserCreationResult> createUsers(@RequestBody List<UserRequest> userRequests) {
+        return userService.createUsers(userRequests);
     }
 }
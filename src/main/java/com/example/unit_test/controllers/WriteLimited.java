@@ -0,0 +1,17 @@
+package com.example.unit_test.controllers;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler that writes users, so {@link ConcurrencyLimitInterceptor} takes its slot from the
+ * write limit. Every other handler counts against the read limit, whatever its HTTP method.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WriteLimited {
+}
@@ -0,0 +1,18 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CacheStatsResponse {
+    private boolean enabled;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+}
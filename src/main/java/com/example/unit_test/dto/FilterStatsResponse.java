@@ -0,0 +1,25 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FilterStatsResponse {
+    private boolean enabled;
+    private boolean ready;
+    private long bitCount;
+    private int hashCount;
+    private long checks;
+    // answers that let the database lookup be skipped
+    private long definitelyAbsent;
+    private long maybePresent;
+    // "maybe present" answers the database then contradicted
+    private long falsePositives;
+    private double hitRate;
+    private double falsePositiveRate;
+}
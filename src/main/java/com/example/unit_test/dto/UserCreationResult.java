@@ -0,0 +1,21 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserCreationResult {
+    private int index;
+    // set for requests accepted by the write-behind queue
+    private String requestId;
+    private String id;
+    private String userName;
+    private String email;
+    private UserCreationStatus status;
+    private String message;
+}
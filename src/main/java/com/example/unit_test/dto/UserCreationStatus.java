@@ -0,0 +1,12 @@
+package com.example.unit_test.dto;
+
+public enum UserCreationStatus {
+    CREATED,
+    DUPLICATE_USERNAME,
+    DUPLICATE_EMAIL,
+    MISSING_CREDENTIALS,
+    // accepted by the write-behind queue, not written yet
+    PENDING,
+    // the write failed for a reason other than the request itself, such as a batch error or an id clash
+    FAILED
+}
@@ -0,0 +1,30 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserImportResponse {
+    private String jobId;
+    private UserImportStatus status;
+    private String format;
+    private long totalBytes;
+    private long bytesRead;
+    // records read from the file, including the ones that were rejected
+    private long records;
+    private long created;
+    private long rejected;
+    private double recordsPerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+    // one JSON line per rejected record, with its line number and the reason
+    private String rejectsFile;
+    private String error;
+}
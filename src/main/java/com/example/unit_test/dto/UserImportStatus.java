@@ -0,0 +1,8 @@
+package com.example.unit_test.dto;
+
+public enum UserImportStatus {
+    RUNNING,
+    COMPLETED,
+    // the file could not be read to the end; what was read before is written
+    FAILED
+}
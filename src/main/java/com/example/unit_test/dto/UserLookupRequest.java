@@ -0,0 +1,17 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserLookupRequest {
+    private List<String> userNames;
+    private List<String> emails;
+}
@@ -0,0 +1,21 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserLookupResponse {
+    // keyed by the values that were asked for, in request order
+    private Map<String, UserResponse> usersByUserName;
+    private Map<String, UserResponse> usersByEmail;
+    private List<String> missingUserNames;
+    private List<String> missingEmails;
+}
@@ -0,0 +1,18 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserPageResponse {
+    private List<UserResponse> users;
+    // pass back as "after" to get the next page; null on the last page
+    private String nextCursor;
+}
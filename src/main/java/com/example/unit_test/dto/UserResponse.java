@@ -1,5 +1,6 @@
 package com.example.unit_test.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,4 +17,7 @@ public class UserResponse {
     private String firstName;
     private String lastName;
     private String phoneNumber;
+    // sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,21 @@
+package com.example.unit_test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserSearchResponse {
+    private String field;
+    private String prefix;
+    // in ascending order
+    private List<String> matches;
+    // false while the index is still being built at startup, existing users may be missing
+    private boolean complete;
+}
@@ -0,0 +1,9 @@
+package com.example.unit_test.events;
+
+import com.example.unit_test.models.User;
+
+import java.util.List;
+
+// published after users were written, for in-memory structures that track them
+public record UsersCreatedEvent(List<User> users) {
+}
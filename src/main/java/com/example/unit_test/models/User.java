@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import org.hibernate.validator.group.GroupSequenceProvider;
 import org.hibernate.validator.spi.group.DefaultGroupSequenceProvider;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -32,4 +33,7 @@ public class User {
     private String firstName;
     private String lastName;
     private String phoneNumber;
+    // bumped by every save, backs the ETag of GET /api/user/{userName}
+    @Version
+    private Long version;
 }
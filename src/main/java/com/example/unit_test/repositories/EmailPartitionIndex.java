@@ -0,0 +1,39 @@
+package com.example.unit_test.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which partition holds the user with a given email, for {@link PartitionedUserRepository}.
+ * A claim is taken before the user is written, so it also keeps emails unique across partitions:
+ * only one claim per email can exist, a missing email included.
+ */
+public interface EmailPartitionIndex {
+    record Claim(String email, int partition, String userId) {
+    }
+
+    /**
+     * Takes every claim whose email is free. Returns the positions in {@code claims} whose email is
+     * held already, by an earlier claim in the list as well.
+     */
+    Set<Integer> claimAll(List<Claim> claims);
+
+    Claim find(String email);
+
+    List<Claim> findAll(Collection<String> emails);
+
+    /**
+     * Replaces {@code stale} with {@code fresh}, provided {@code stale} is still the claim on record
+     * and was taken long enough ago that its user is not merely still being written.
+     */
+    boolean replaceStale(Claim stale, Claim fresh);
+
+    // only removes the claim while it still belongs to the same user
+    void release(Claim claim);
+
+    // points the claim at another partition, for a user that moved there; only while it still belongs to that user
+    void move(Claim claim, int partition);
+
+    void clear();
+}
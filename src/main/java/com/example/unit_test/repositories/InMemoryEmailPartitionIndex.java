@@ -0,0 +1,89 @@
+package com.example.unit_test.repositories;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link EmailPartitionIndex} kept in memory, next to in-memory partitions.
+ */
+public class InMemoryEmailPartitionIndex implements EmailPartitionIndex {
+    private static final Object NULL_KEY = new Object();
+
+    private final Map<Object, Held> claims = new ConcurrentHashMap<>();
+    private final long staleAfterNanos;
+
+    public InMemoryEmailPartitionIndex(Duration staleAfter) {
+        this.staleAfterNanos = staleAfter.toNanos();
+    }
+
+    @Override
+    public Set<Integer> claimAll(List<Claim> batch) {
+        Set<Integer> taken = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Claim claim = batch.get(i);
+            if (claims.putIfAbsent(keyOf(claim.email()), new Held(claim, System.nanoTime())) != null) {
+                taken.add(i);
+            }
+        }
+        return taken;
+    }
+
+    @Override
+    public Claim find(String email) {
+        Held held = claims.get(keyOf(email));
+        return held == null ? null : held.claim();
+    }
+
+    @Override
+    public List<Claim> findAll(Collection<String> emails) {
+        List<Claim> found = new ArrayList<>();
+        for (String email : emails) {
+            Claim claim = find(email);
+            if (claim != null) {
+                found.add(claim);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean replaceStale(Claim stale, Claim fresh) {
+        Object key = keyOf(stale.email());
+        Held held = claims.get(key);
+        if (held == null || !held.claim().equals(stale) || System.nanoTime() - held.claimedAt() < staleAfterNanos) {
+            return false;
+        }
+        return claims.replace(key, held, new Held(fresh, System.nanoTime()));
+    }
+
+    @Override
+    public void release(Claim claim) {
+        claims.computeIfPresent(keyOf(claim.email()),
+                (key, held) -> held.claim().userId().equals(claim.userId()) ? null : held);
+    }
+
+    @Override
+    public void move(Claim claim, int partition) {
+        claims.computeIfPresent(keyOf(claim.email()), (key, held) -> held.claim().userId().equals(claim.userId())
+                ? new Held(new Claim(claim.email(), partition, claim.userId()), held.claimedAt())
+                : held);
+    }
+
+    @Override
+    public void clear() {
+        claims.clear();
+    }
+
+    private static Object keyOf(String email) {
+        return email == null ? NULL_KEY : email;
+    }
+
+    private record Held(Claim claim, long claimedAt) {
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.services.UserMapper;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.data.util.TypeInformation;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Query-by-example and sorting for {@link InMemoryUserRepository}, following what the Mongo
+ * repository does with the same arguments: every non-null probe property is a criterion unless
+ * ignored, string matchers and ignore-case apply per path, nulls sort lowest and unknown
+ * properties are rejected. Results are read as {@link User} or {@link UserResponse}.
+ */
+final class InMemoryUserQuery<T> implements FluentQuery.FetchableFluentQuery<T> {
+    private static final Map<String, Function<User, Object>> PROPERTIES = properties();
+
+    private final Collection<? extends User> users;
+    private final Example<? extends User> example;
+    private final Sort sort;
+    private final int limit;
+    private final Set<String> fields;
+    private final Class<T> resultType;
+
+    private InMemoryUserQuery(Collection<? extends User> users, Example<? extends User> example, Sort sort, int limit,
+                              Set<String> fields, Class<T> resultType) {
+        this.users = users;
+        this.example = example;
+        this.sort = sort;
+        this.limit = limit;
+        this.fields = fields;
+        this.resultType = resultType;
+    }
+
+    // users in _id order, read as they are when the query runs
+    static <S extends User> InMemoryUserQuery<S> of(Collection<? extends User> users, Example<S> example) {
+        return new InMemoryUserQuery<>(users, example, Sort.unsorted(), 0, null, example.getProbeType());
+    }
+
+    static Comparator<User> comparatorOf(Sort sort) {
+        Comparator<User> comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            Function<User, Object> property = property(order.getProperty());
+            Comparator<Object> values = order.isIgnoreCase() ? InMemoryUserQuery::compareIgnoringCase : InMemoryUserQuery::compare;
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            boolean nullsFirst = switch (order.getNullHandling()) {
+                case NULLS_FIRST -> true;
+                case NULLS_LAST -> false;
+                // like Mongo: null is the lowest value
+                case NATIVE -> order.isAscending();
+            };
+            comparator = comparator.thenComparing(property, nullsFirst ? Comparator.nullsFirst(values) : Comparator.nullsLast(values));
+        }
+        return comparator;
+    }
+
+    @Override
+    public FetchableFluentQuery<T> sortBy(Sort sort) {
+        return new InMemoryUserQuery<>(users, example, this.sort.and(sort), limit, fields, resultType);
+    }
+
+    @Override
+    public FetchableFluentQuery<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        return new InMemoryUserQuery<>(users, example, sort, limit, fields, resultType);
+    }
+
+    @Override
+    public <R> FetchableFluentQuery<R> as(Class<R> resultType) {
+        if (!resultType.isAssignableFrom(User.class) && resultType != UserResponse.class) {
+            throw new IllegalArgumentException("The in-memory user repository reads users as User or UserResponse, not " + resultType.getName());
+        }
+        return new InMemoryUserQuery<>(users, example, sort, limit, fields, resultType);
+    }
+
+    @Override
+    public FetchableFluentQuery<T> project(Collection<String> properties) {
+        properties.forEach(InMemoryUserQuery::property);
+        return new InMemoryUserQuery<>(users, example, sort, limit, Set.copyOf(properties), resultType);
+    }
+
+    @Override
+    public T oneValue() {
+        List<T> found = fetch(sort, 0, 2);
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, found.size());
+        }
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public T firstValue() {
+        List<T> found = fetch(sort, 0, 1);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public List<T> all() {
+        return fetch(sort, 0, limit);
+    }
+
+    @Override
+    public Page<T> page(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(fetch(sort.and(pageable.getSort()), 0, limit));
+        }
+        return new PageImpl<>(fetch(sort.and(pageable.getSort()), pageable.getOffset(), pageable.getPageSize()), pageable, count());
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return all().stream();
+    }
+
+    @Override
+    public long count() {
+        return matching().count();
+    }
+
+    @Override
+    public boolean exists() {
+        return matching().findAny().isPresent();
+    }
+
+    private List<T> fetch(Sort order, long offset, int limit) {
+        Stream<User> found = matching();
+        if (order.isSorted()) {
+            found = found.sorted(comparatorOf(order));
+        }
+        found = found.skip(offset);
+        if (limit > 0) {
+            found = found.limit(limit);
+        }
+        return found.map(this::read).toList();
+    }
+
+    private Stream<User> matching() {
+        return users.stream().filter(this::matches).map(User.class::cast);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T read(User user) {
+        User projected = fields == null ? copyOf(user) : projectionOf(user);
+        return resultType == UserResponse.class ? (T) UserMapper.mapUserToUserResponse(projected) : (T) projected;
+    }
+
+    private boolean matches(User user) {
+        ExampleMatcher matcher = example.getMatcher();
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(matcher);
+        boolean any = false;
+        boolean criteria = false;
+        for (Map.Entry<String, Function<User, Object>> property : PROPERTIES.entrySet()) {
+            String path = property.getKey();
+            if (accessor.isIgnoredPath(path)) {
+                continue;
+            }
+            Object expected = accessor.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(property.getValue().apply(example.getProbe())))
+                    .orElse(null);
+            Object actual = property.getValue().apply(user);
+            boolean matched;
+            if (expected == null) {
+                if (accessor.getNullHandler() != ExampleMatcher.NullHandler.INCLUDE) {
+                    continue;
+                }
+                matched = actual == null;
+            } else {
+                matched = matchesValue(accessor, path, expected, actual);
+            }
+            criteria = true;
+            if (matcher.isAllMatching() && !matched) {
+                return false;
+            }
+            any |= matched;
+        }
+        return !criteria || matcher.isAllMatching() || any;
+    }
+
+    private static boolean matchesValue(ExampleMatcherAccessor accessor, String path, Object expected, Object actual) {
+        if (!(expected instanceof String pattern) || !(actual instanceof String value)) {
+            return expected.equals(actual);
+        }
+        boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+        ExampleMatcher.StringMatcher stringMatcher = accessor.getStringMatcherForPath(path);
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(value).find();
+        }
+        if (ignoreCase) {
+            pattern = pattern.toLowerCase(Locale.ROOT);
+            value = value.toLowerCase(Locale.ROOT);
+        }
+        return switch (stringMatcher) {
+            case DEFAULT, EXACT -> value.equals(pattern);
+            case STARTING -> value.startsWith(pattern);
+            case ENDING -> value.endsWith(pattern);
+            case CONTAINING -> value.contains(pattern);
+            case REGEX -> throw new IllegalStateException("handled above");
+        };
+    }
+
+    // _id is always returned, like a Mongo projection
+    private User projectionOf(User user) {
+        return new User(user.getId(),
+                fields.contains("userName") ? user.getUserName() : null,
+                fields.contains("email") ? user.getEmail() : null,
+                fields.contains("firstName") ? user.getFirstName() : null,
+                fields.contains("lastName") ? user.getLastName() : null,
+                fields.contains("phoneNumber") ? user.getPhoneNumber() : null,
+                fields.contains("version") ? user.getVersion() : null);
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUserName(), user.getEmail(),
+                user.getFirstName(), user.getLastName(), user.getPhoneNumber(), user.getVersion());
+    }
+
+    private static Function<User, Object> property(String name) {
+        Function<User, Object> property = PROPERTIES.get(name);
+        if (property == null) {
+            throw new PropertyReferenceException(name, TypeInformation.of(User.class), List.of());
+        }
+        return property;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object left, Object right) {
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    private static int compareIgnoringCase(Object left, Object right) {
+        if (left instanceof String leftValue && right instanceof String rightValue) {
+            return String.CASE_INSENSITIVE_ORDER.compare(leftValue, rightValue);
+        }
+        return compare(left, right);
+    }
+
+    private static Map<String, Function<User, Object>> properties() {
+        Map<String, Function<User, Object>> properties = new LinkedHashMap<>();
+        properties.put("id", User::getId);
+        properties.put("userName", User::getUserName);
+        properties.put("email", User::getEmail);
+        properties.put("firstName", User::getFirstName);
+        properties.put("lastName", User::getLastName);
+        properties.put("phoneNumber", User::getPhoneNumber);
+        properties.put("version", User::getVersion);
+        return properties;
+    }
+}
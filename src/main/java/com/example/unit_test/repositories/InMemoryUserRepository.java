@@ -0,0 +1,362 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.services.UserMapper;
+import com.example.unit_test.utils.DuplicateKeyField;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe {@link UserRepository} kept in memory, for running the service without a mongod.
+ * Users are kept in {@code _id} order and the unique indexes on userName and email behave like
+ * Mongo's: a missing value is indexed as null, so two users without the same field collide.
+ * Versions follow {@code @Version}: 0 on insert, one more on every save of the current version.
+ * Query-by-example and sorting are answered by {@link InMemoryUserQuery}.
+ */
+public class InMemoryUserRepository implements UserRepository {
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentNavigableMap<String, User> users = new ConcurrentSkipListMap<>();
+    private final Map<Object, String> idsByUserName = new ConcurrentHashMap<>();
+    private final Map<Object, String> idsByEmail = new ConcurrentHashMap<>();
+    // reads are lock-free, writes are serialized so both unique indexes change together
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @Override
+    public User findUserByUserName(String userName) {
+        return copyOf(findBy(idsByUserName, userName));
+    }
+
+    @Override
+    public User findUserByEmail(String email) {
+        return copyOf(findBy(idsByEmail, email));
+    }
+
+    @Override
+    public List<User> findAllByUserNameIn(Collection<String> userNames) {
+        return userNames.stream().map(this::findUserByUserName).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public List<User> findAllByEmailIn(Collection<String> emails) {
+        return emails.stream().map(this::findUserByEmail).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public UserResponse findUserResponseByUserName(String userName) {
+        User user = findBy(idsByUserName, userName);
+        return user == null ? null : UserMapper.mapUserToUserResponse(user);
+    }
+
+    @Override
+    public UserResponse findUserVersionByUserName(String userName) {
+        User user = findBy(idsByUserName, userName);
+        return user == null ? null : UserResponse.builder().id(user.getId()).version(user.getVersion()).build();
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByUserNameIn(Collection<String> userNames) {
+        return userNames.stream().map(this::findUserResponseByUserName).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByEmailIn(Collection<String> emails) {
+        return emails.stream()
+                .map(email -> findBy(idsByEmail, email))
+                .filter(Objects::nonNull)
+                .map(UserMapper::mapUserToUserResponse)
+                .toList();
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesAfter(String afterId, int limit, Collection<String> fields) {
+        Collection<User> page = afterId == null ? users.values() : users.tailMap(afterId, false).values();
+        return page.stream()
+                .limit(limit)
+                .map(user -> project(user, fields))
+                .toList();
+    }
+
+    @Override
+    public Stream<UserResponse> streamUserResponses() {
+        return users.values().stream().map(UserMapper::mapUserToUserResponse);
+    }
+
+    @Override
+    public Map<Integer, DuplicateKeyField> insertUnordered(List<User> batch) {
+        Map<Integer, DuplicateKeyField> rejected = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                insert(batch.get(i));
+            } catch (DuplicateKeyException ex) {
+                DuplicateKeyField field = DuplicateKeyField.fromErrorMessage(ex.getMessage());
+                // like the Mongo implementation, a key it cannot name is not reported as a rejection
+                if (field == null) {
+                    throw ex;
+                }
+                rejected.put(i, field);
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public <S extends User> S insert(S entity) {
+        writeLock.lock();
+        try {
+            if (entity.getId() == null) {
+                entity.setId(new ObjectId().toHexString());
+            } else if (users.containsKey(entity.getId())) {
+                throw duplicateKey("_id_", entity.getId());
+            }
+            index(entity);
+            if (entity.getVersion() == null) {
+                entity.setVersion(0L);
+            }
+            users.put(entity.getId(), copyOf(entity));
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public <S extends User> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        for (S entity : entities) {
+            inserted.add(insert(entity));
+        }
+        return inserted;
+    }
+
+    @Override
+    public <S extends User> S save(S entity) {
+        writeLock.lock();
+        try {
+            User existing = entity.getId() == null ? null : users.get(entity.getId());
+            if (existing == null) {
+                return insert(entity);
+            }
+            if (!Objects.equals(existing.getVersion(), entity.getVersion())) {
+                throw new OptimisticLockingFailureException("User " + entity.getId() + " was saved at version "
+                        + existing.getVersion() + ", not " + entity.getVersion());
+            }
+            unindex(existing);
+            try {
+                index(entity);
+            } catch (DuplicateKeyException ex) {
+                index(existing);
+                throw ex;
+            }
+            entity.setVersion(entity.getVersion() == null ? 0L : entity.getVersion() + 1);
+            users.put(entity.getId(), copyOf(entity));
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public <S extends User> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        return Optional.ofNullable(copyOf(users.get(id)));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return users.values().stream().map(InMemoryUserRepository::copyOf).toList();
+    }
+
+    @Override
+    public List<User> findAllById(Iterable<String> ids) {
+        List<User> found = new ArrayList<>();
+        for (String id : ids) {
+            findById(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        writeLock.lock();
+        try {
+            User removed = users.remove(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(User entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        for (String id : ids) {
+            deleteById(id);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends User> entities) {
+        for (User entity : entities) {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        writeLock.lock();
+        try {
+            users.clear();
+            idsByUserName.clear();
+            idsByEmail.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<User> findAll(Sort sort) {
+        return findAll(Example.of(new User(), ExampleMatcher.matchingAll()), sort);
+    }
+
+    @Override
+    public Page<User> findAll(Pageable pageable) {
+        return findAll(Example.of(new User(), ExampleMatcher.matchingAll()), pageable);
+    }
+
+    @Override
+    public <S extends User> Optional<S> findOne(Example<S> example) {
+        return InMemoryUserQuery.of(users.values(), example).one();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example) {
+        return InMemoryUserQuery.of(users.values(), example).all();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example, Sort sort) {
+        return InMemoryUserQuery.of(users.values(), example).sortBy(sort).all();
+    }
+
+    @Override
+    public <S extends User> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return InMemoryUserQuery.of(users.values(), example).page(pageable);
+    }
+
+    @Override
+    public <S extends User> long count(Example<S> example) {
+        return InMemoryUserQuery.of(users.values(), example).count();
+    }
+
+    @Override
+    public <S extends User> boolean exists(Example<S> example) {
+        return InMemoryUserQuery.of(users.values(), example).exists();
+    }
+
+    @Override
+    public <S extends User, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(InMemoryUserQuery.of(users.values(), example));
+    }
+
+    private User findBy(Map<Object, String> index, String value) {
+        String id = index.get(keyOf(value));
+        return id == null ? null : users.get(id);
+    }
+
+    private void index(User user) {
+        Object userName = keyOf(user.getUserName());
+        Object email = keyOf(user.getEmail());
+        String owner = idsByUserName.get(userName);
+        if (owner != null && !owner.equals(user.getId())) {
+            throw duplicateKey("userName", user.getUserName());
+        }
+        owner = idsByEmail.get(email);
+        if (owner != null && !owner.equals(user.getId())) {
+            throw duplicateKey("email", user.getEmail());
+        }
+        idsByUserName.put(userName, user.getId());
+        idsByEmail.put(email, user.getId());
+    }
+
+    private void unindex(User user) {
+        idsByUserName.remove(keyOf(user.getUserName()), user.getId());
+        idsByEmail.remove(keyOf(user.getEmail()), user.getId());
+    }
+
+    private static Object keyOf(String value) {
+        return value == null ? NULL_KEY : value;
+    }
+
+    private static DuplicateKeyException duplicateKey(String index, String value) {
+        String field = index.equals("_id_") ? "_id" : index;
+        return new DuplicateKeyException("E11000 duplicate key error collection: users index: " + index
+                + " dup key: { " + field + ": " + (value == null ? "null" : "\"" + value + "\"") + " }");
+    }
+
+    private static UserResponse project(User user, Collection<String> fields) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .userName(fields.contains("userName") ? user.getUserName() : null)
+                .email(fields.contains("email") ? user.getEmail() : null)
+                .firstName(fields.contains("firstName") ? user.getFirstName() : null)
+                .lastName(fields.contains("lastName") ? user.getLastName() : null)
+                .phoneNumber(fields.contains("phoneNumber") ? user.getPhoneNumber() : null)
+                .version(fields.contains("version") ? user.getVersion() : null)
+                .build();
+    }
+
+    private static User copyOf(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new User(user.getId(), user.getUserName(), user.getEmail(),
+                user.getFirstName(), user.getLastName(), user.getPhoneNumber(), user.getVersion());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.unit_test.repositories;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link EmailPartitionIndex} in a collection of {@code { _id: email, partition, userId, claimedAt }}
+ * documents, so the unique {@code _id} index is what keeps emails unique across partitions.
+ * A user without an email is claimed under a null {@code _id}.
+ */
+public class MongoEmailPartitionIndex implements EmailPartitionIndex {
+    private final MongoCollection<Document> claims;
+    private final Duration staleAfter;
+
+    public MongoEmailPartitionIndex(MongoTemplate mongoTemplate, String collectionName, Duration staleAfter) {
+        this.claims = mongoTemplate.getCollection(collectionName);
+        this.staleAfter = staleAfter;
+    }
+
+    @Override
+    public Set<Integer> claimAll(List<Claim> batch) {
+        if (batch.isEmpty()) {
+            return Set.of();
+        }
+        Date now = new Date();
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (Claim claim : batch) {
+            documents.add(new Document("_id", claim.email())
+                    .append("partition", claim.partition())
+                    .append("userId", claim.userId())
+                    .append("claimedAt", now));
+        }
+        try {
+            claims.insertMany(documents, new InsertManyOptions().ordered(false));
+            return Set.of();
+        } catch (MongoBulkWriteException ex) {
+            Set<Integer> taken = new HashSet<>();
+            for (BulkWriteError error : ex.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw ex;
+                }
+                taken.add(error.getIndex());
+            }
+            return taken;
+        }
+    }
+
+    @Override
+    public Claim find(String email) {
+        Document document = claims.find(Filters.eq("_id", email)).first();
+        return document == null ? null : toClaim(document);
+    }
+
+    @Override
+    public List<Claim> findAll(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
+        List<Claim> found = new ArrayList<>(emails.size());
+        for (Document document : claims.find(Filters.in("_id", emails))) {
+            found.add(toClaim(document));
+        }
+        return found;
+    }
+
+    @Override
+    public boolean replaceStale(Claim stale, Claim fresh) {
+        Date staleBefore = Date.from(Instant.now().minus(staleAfter));
+        return claims.updateOne(
+                Filters.and(
+                        Filters.eq("_id", stale.email()),
+                        Filters.eq("userId", stale.userId()),
+                        Filters.lte("claimedAt", staleBefore)),
+                Updates.combine(
+                        Updates.set("partition", fresh.partition()),
+                        Updates.set("userId", fresh.userId()),
+                        Updates.set("claimedAt", new Date())))
+                .getModifiedCount() == 1;
+    }
+
+    @Override
+    public void release(Claim claim) {
+        claims.deleteOne(Filters.and(Filters.eq("_id", claim.email()), Filters.eq("userId", claim.userId())));
+    }
+
+    @Override
+    public void move(Claim claim, int partition) {
+        claims.updateOne(Filters.and(Filters.eq("_id", claim.email()), Filters.eq("userId", claim.userId())),
+                Updates.set("partition", partition));
+    }
+
+    @Override
+    public void clear() {
+        claims.deleteMany(Filters.empty());
+    }
+
+    private static Claim toClaim(Document document) {
+        return new Claim(document.getString("_id"), document.getInteger("partition"), document.getString("userId"));
+    }
+}
@@ -0,0 +1,574 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.EmailPartitionIndex.Claim;
+import com.example.unit_test.utils.DuplicateKeyField;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link UserRepository} spread over several partitions, each a complete repository of its own.
+ * A user lives in the partition picked by the hash of its userName, so a userName is unique
+ * because its partition's unique index says so. Emails are claimed in an {@link EmailPartitionIndex}
+ * before the user is written, which keeps them unique across partitions and tells email lookups
+ * which partition to ask. Lookups by id, counts and pages ask every partition in parallel.
+ * <p>
+ * The partition of a userName depends on the number of partitions, so changing it needs the users
+ * moved first. Renaming a user into another partition moves it there, claim included. Sorted
+ * reads, pages and queries by example run on every partition and are merged in the same order,
+ * ties broken by id. A claim whose user was
+ * never written, because the write failed or the process died in between, is taken over by the
+ * next user with that email once the index considers it stale.
+ */
+public class PartitionedUserRepository implements UserRepository {
+    private static final Comparator<UserResponse> BY_ID = Comparator.comparing(UserResponse::getId);
+
+    private final List<UserRepository> partitions;
+    private final EmailPartitionIndex emailIndex;
+
+    public PartitionedUserRepository(List<UserRepository> partitions, EmailPartitionIndex emailIndex) {
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("At least one partition is needed");
+        }
+        this.partitions = List.copyOf(partitions);
+        this.emailIndex = emailIndex;
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    // String.hashCode is specified, so the same userName lands in the same partition on every JVM
+    public int partitionOf(String userName) {
+        return userName == null ? 0 : Math.floorMod(userName.hashCode(), partitions.size());
+    }
+
+    @Override
+    public User findUserByUserName(String userName) {
+        return partitions.get(partitionOf(userName)).findUserByUserName(userName);
+    }
+
+    @Override
+    public User findUserByEmail(String email) {
+        Claim claim = emailIndex.find(email);
+        return claim == null ? null : partitions.get(claim.partition()).findUserByEmail(email);
+    }
+
+    @Override
+    public List<User> findAllByUserNameIn(Collection<String> userNames) {
+        return gather(byPartition(userNames, this::partitionOf), UserRepository::findAllByUserNameIn);
+    }
+
+    @Override
+    public List<User> findAllByEmailIn(Collection<String> emails) {
+        return gather(emailsByPartition(emails), UserRepository::findAllByEmailIn);
+    }
+
+    @Override
+    public UserResponse findUserResponseByUserName(String userName) {
+        return partitions.get(partitionOf(userName)).findUserResponseByUserName(userName);
+    }
+
+    @Override
+    public UserResponse findUserVersionByUserName(String userName) {
+        return partitions.get(partitionOf(userName)).findUserVersionByUserName(userName);
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByUserNameIn(Collection<String> userNames) {
+        return gather(byPartition(userNames, this::partitionOf), UserRepository::findUserResponsesByUserNameIn);
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByEmailIn(Collection<String> emails) {
+        return gather(emailsByPartition(emails), UserRepository::findUserResponsesByEmailIn);
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesAfter(String afterId, int limit, Collection<String> fields) {
+        // every partition returns its first page, the merged page is the first limit of all of them
+        Map<Integer, List<UserResponse>> pages = scatter(allPartitions(), p -> partitions.get(p).findUserResponsesAfter(afterId, limit, fields));
+        return pages.values().stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Stream<UserResponse> streamUserResponses() {
+        List<Stream<UserResponse>> streams = new ArrayList<>(partitions.size());
+        try {
+            for (UserRepository partition : partitions) {
+                streams.add(partition.streamUserResponses());
+            }
+        } catch (RuntimeException ex) {
+            streams.forEach(Stream::close);
+            throw ex;
+        }
+        MergedIterator merged = new MergedIterator(streams.stream().map(Stream::iterator).toList());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    @Override
+    public Map<Integer, DuplicateKeyField> insertUnordered(List<User> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        List<Claim> claims = new ArrayList<>(users.size());
+        for (User user : users) {
+            claims.add(claimFor(user));
+        }
+        Map<Integer, DuplicateKeyField> rejected = new HashMap<>();
+        for (int i : claimAll(claims)) {
+            rejected.put(i, DuplicateKeyField.EMAIL);
+        }
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (!rejected.containsKey(i)) {
+                positions.computeIfAbsent(claims.get(i).partition(), p -> new ArrayList<>()).add(i);
+            }
+        }
+        // a failed partition write keeps its claims: they are either right or become stale
+        Map<Integer, Map<Integer, DuplicateKeyField>> conflicts = scatter(positions.keySet(),
+                p -> partitions.get(p).insertUnordered(positions.get(p).stream().map(users::get).toList()));
+        conflicts.forEach((p, partitionConflicts) -> partitionConflicts.forEach((j, field) -> {
+            int i = positions.get(p).get(j);
+            emailIndex.release(claims.get(i));
+            rejected.put(i, field);
+        }));
+        return rejected;
+    }
+
+    @Override
+    public <S extends User> S insert(S entity) {
+        Claim claim = claimFor(entity);
+        if (!claimAll(List.of(claim)).isEmpty()) {
+            throw duplicateEmail(entity.getEmail());
+        }
+        try {
+            return partitions.get(claim.partition()).insert(entity);
+        } catch (DuplicateKeyException ex) {
+            emailIndex.release(claim);
+            throw ex;
+        }
+    }
+
+    @Override
+    public <S extends User> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        for (S entity : entities) {
+            inserted.add(insert(entity));
+        }
+        return inserted;
+    }
+
+    @Override
+    public <S extends User> S save(S entity) {
+        int partition = partitionOf(entity.getUserName());
+        User existing = entity.getId() == null ? null : partitions.get(partition).findById(entity.getId()).orElse(null);
+        if (existing == null) {
+            Map.Entry<Integer, User> elsewhere = entity.getId() == null ? null : locate(entity.getId());
+            return elsewhere == null ? insert(entity) : move(entity, elsewhere.getKey(), elsewhere.getValue());
+        }
+        if (Objects.equals(existing.getEmail(), entity.getEmail())) {
+            return partitions.get(partition).save(entity);
+        }
+        Claim claim = new Claim(entity.getEmail(), partition, entity.getId());
+        if (!claimAll(List.of(claim)).isEmpty()) {
+            throw duplicateEmail(entity.getEmail());
+        }
+        S saved;
+        try {
+            saved = partitions.get(partition).save(entity);
+        } catch (RuntimeException ex) {
+            emailIndex.release(claim);
+            throw ex;
+        }
+        emailIndex.release(new Claim(existing.getEmail(), partition, existing.getId()));
+        return saved;
+    }
+
+    @Override
+    public <S extends User> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    // a rename into another partition: written there first, then removed from the old one, so for a
+    // moment the user can be found in both; the email claim follows it
+    private <S extends User> S move(S entity, int from, User existing) {
+        if (!Objects.equals(existing.getVersion(), entity.getVersion())) {
+            throw new OptimisticLockingFailureException("User " + entity.getId() + " was saved at version "
+                    + existing.getVersion() + ", not " + entity.getVersion());
+        }
+        int to = partitionOf(entity.getUserName());
+        boolean sameEmail = Objects.equals(existing.getEmail(), entity.getEmail());
+        Claim claim = new Claim(entity.getEmail(), to, entity.getId());
+        if (!sameEmail && !claimAll(List.of(claim)).isEmpty()) {
+            throw duplicateEmail(entity.getEmail());
+        }
+        // a bulk insert keeps the version, so ETags of the old state do not match the moved user
+        entity.setVersion(existing.getVersion() == null ? 0L : existing.getVersion() + 1);
+        Map<Integer, DuplicateKeyField> rejected;
+        try {
+            rejected = partitions.get(to).insertUnordered(List.of(entity));
+        } catch (RuntimeException ex) {
+            undoMove(entity, existing, sameEmail, claim);
+            throw ex;
+        }
+        if (!rejected.isEmpty()) {
+            undoMove(entity, existing, sameEmail, claim);
+            throw switch (rejected.get(0)) {
+                case EMAIL -> duplicateEmail(entity.getEmail());
+                case USER_NAME -> duplicateUserName(entity.getUserName());
+                case ID -> new DuplicateKeyException("E11000 duplicate key error collection: users index: _id_ dup key: { _id: \""
+                        + entity.getId() + "\" }");
+            };
+        }
+        partitions.get(from).deleteById(entity.getId());
+        Claim held = new Claim(existing.getEmail(), from, existing.getId());
+        if (sameEmail) {
+            emailIndex.move(held, to);
+        } else {
+            emailIndex.release(held);
+        }
+        return entity;
+    }
+
+    private void undoMove(User entity, User existing, boolean sameEmail, Claim claim) {
+        entity.setVersion(existing.getVersion());
+        if (!sameEmail) {
+            emailIndex.release(claim);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        return scatter(allPartitions(), p -> partitions.get(p).findById(id)).values().stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return scatter(allPartitions(), p -> partitions.get(p).existsById(id)).containsValue(true);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return gather(allPartitions(), p -> partitions.get(p).findAll()).stream()
+                .sorted(Comparator.comparing(User::getId))
+                .toList();
+    }
+
+    @Override
+    public List<User> findAllById(Iterable<String> ids) {
+        List<String> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return gather(allPartitions(), p -> partitions.get(p).findAllById(list));
+    }
+
+    @Override
+    public long count() {
+        return scatter(allPartitions(), p -> partitions.get(p).count()).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        scatter(allPartitions(), p -> partitions.get(p).findById(id)).forEach((p, user) -> user.ifPresent(existing -> {
+            partitions.get(p).deleteById(id);
+            emailIndex.release(new Claim(existing.getEmail(), p, id));
+        }));
+    }
+
+    @Override
+    public void delete(User entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        for (String id : ids) {
+            deleteById(id);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends User> entities) {
+        for (User entity : entities) {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        scatter(allPartitions(), p -> {
+            partitions.get(p).deleteAll();
+            return true;
+        });
+        emailIndex.clear();
+    }
+
+    @Override
+    public List<User> findAll(Sort sort) {
+        return findAll(Example.of(new User(), ExampleMatcher.matchingAll()), sort);
+    }
+
+    @Override
+    public Page<User> findAll(Pageable pageable) {
+        return findAll(Example.of(new User(), ExampleMatcher.matchingAll()), pageable);
+    }
+
+    @Override
+    public <S extends User> Optional<S> findOne(Example<S> example) {
+        List<S> found = gather(allPartitions(), p -> partitions.get(p).findOne(example).stream().toList());
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, found.size());
+        }
+        return found.stream().findFirst();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example) {
+        return findAll(example, Sort.unsorted());
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example, Sort sort) {
+        Sort order = withIdOrder(sort);
+        return merge(gather(allPartitions(), p -> partitions.get(p).findAll(example, order)), order);
+    }
+
+    // every partition returns its first offset + size users, the page is cut from the merge of them
+    @Override
+    public <S extends User> Page<S> findAll(Example<S> example, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(example, pageable.getSort()));
+        }
+        Sort order = withIdOrder(pageable.getSort());
+        Pageable head = PageRequest.of(0, Math.toIntExact(pageable.getOffset() + pageable.getPageSize()), order);
+        Map<Integer, Page<S>> pages = scatter(allPartitions(), p -> partitions.get(p).findAll(example, head));
+        List<S> content = merge(gather(pages.keySet(), p -> pages.get(p).getContent()), order).stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        return new PageImpl<>(content, pageable, pages.values().stream().mapToLong(Page::getTotalElements).sum());
+    }
+
+    @Override
+    public <S extends User> long count(Example<S> example) {
+        return scatter(allPartitions(), p -> partitions.get(p).count(example)).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public <S extends User> boolean exists(Example<S> example) {
+        return scatter(allPartitions(), p -> partitions.get(p).exists(example)).containsValue(true);
+    }
+
+    // the matches of every partition, then sorted, limited and projected like the in-memory repository does
+    @Override
+    public <S extends User, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(InMemoryUserQuery.of(findAll(example), example));
+    }
+
+    // the id is assigned here rather than by the partition, so the claim can name its user
+    private Claim claimFor(User user) {
+        if (user.getId() == null) {
+            user.setId(new ObjectId().toHexString());
+        }
+        return new Claim(user.getEmail(), partitionOf(user.getUserName()), user.getId());
+    }
+
+    // positions whose email is held by a live user, or by a user of the same batch still being written
+    private Set<Integer> claimAll(List<Claim> claims) {
+        Set<Integer> taken = new HashSet<>(emailIndex.claimAll(claims));
+        if (taken.isEmpty()) {
+            return taken;
+        }
+        Set<String> batch = new HashSet<>();
+        claims.forEach(claim -> batch.add(claim.userId()));
+        taken.removeIf(i -> takeOverIfStale(claims.get(i), batch));
+        return taken;
+    }
+
+    private boolean takeOverIfStale(Claim claim, Set<String> batch) {
+        Claim held = emailIndex.find(claim.email());
+        if (held == null) {
+            return emailIndex.claimAll(List.of(claim)).isEmpty();
+        }
+        if (batch.contains(held.userId()) || partitions.get(held.partition()).existsById(held.userId())) {
+            return false;
+        }
+        return emailIndex.replaceStale(held, claim);
+    }
+
+    private Map.Entry<Integer, User> locate(String id) {
+        return scatter(allPartitions(), p -> partitions.get(p).findById(id)).entrySet().stream()
+                .filter(found -> found.getValue().isPresent())
+                .map(found -> Map.entry(found.getKey(), found.getValue().get()))
+                .findFirst().orElse(null);
+    }
+
+    private Map<Integer, List<String>> emailsByPartition(Collection<String> emails) {
+        Map<Integer, List<String>> grouped = new TreeMap<>();
+        for (Claim claim : emailIndex.findAll(emails)) {
+            grouped.computeIfAbsent(claim.partition(), p -> new ArrayList<>()).add(claim.email());
+        }
+        return grouped;
+    }
+
+    private static Map<Integer, List<String>> byPartition(Collection<String> values, Function<String, Integer> partitionOf) {
+        Map<Integer, List<String>> grouped = new TreeMap<>();
+        for (String value : values) {
+            grouped.computeIfAbsent(partitionOf.apply(value), p -> new ArrayList<>()).add(value);
+        }
+        return grouped;
+    }
+
+    private <T> List<T> gather(Map<Integer, List<String>> grouped, PartitionQuery<T> query) {
+        return gather(grouped.keySet(), p -> query.apply(partitions.get(p), grouped.get(p)));
+    }
+
+    private <T> List<T> gather(Collection<Integer> selected, IntFunction<List<T>> call) {
+        List<T> gathered = new ArrayList<>();
+        scatter(selected, call).values().forEach(gathered::addAll);
+        return gathered;
+    }
+
+    private List<Integer> allPartitions() {
+        return IntStream.range(0, partitions.size()).boxed().toList();
+    }
+
+    // calls every selected partition at once, each on its own virtual thread
+    private static <T> Map<Integer, T> scatter(Collection<Integer> selected, IntFunction<T> call) {
+        Map<Integer, T> results = new TreeMap<>();
+        if (selected.size() == 1) {
+            int p = selected.iterator().next();
+            results.put(p, call.apply(p));
+            return results;
+        }
+        Map<Integer, Future<T>> futures = new TreeMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int p : selected) {
+                futures.put(p, executor.submit(() -> call.apply(p)));
+            }
+        }
+        try {
+            for (Map.Entry<Integer, Future<T>> future : futures.entrySet()) {
+                results.put(future.getKey(), future.getValue().get());
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the user partitions", ex);
+        }
+        return results;
+    }
+
+    private static DuplicateKeyException duplicateEmail(String email) {
+        return new DuplicateKeyException("E11000 duplicate key error collection: user_email_partitions index: email dup key: { email: "
+                + (email == null ? "null" : "\"" + email + "\"") + " }");
+    }
+
+    private static DuplicateKeyException duplicateUserName(String userName) {
+        return new DuplicateKeyException("E11000 duplicate key error collection: users index: userName dup key: { userName: "
+                + (userName == null ? "null" : "\"" + userName + "\"") + " }");
+    }
+
+    // ties are broken by id, so the partitions and the merge agree on one order
+    private static Sort withIdOrder(Sort sort) {
+        return sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+    }
+
+    private static <S extends User> List<S> merge(List<S> users, Sort order) {
+        List<S> merged = new ArrayList<>(users);
+        merged.sort(InMemoryUserQuery.comparatorOf(order));
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface PartitionQuery<T> {
+        List<T> apply(UserRepository partition, List<String> values);
+    }
+
+    // k-way merge of streams that are each in _id order
+    private static final class MergedIterator implements Iterator<UserResponse> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::user, BY_ID));
+
+        MergedIterator(List<Iterator<UserResponse>> iterators) {
+            for (Iterator<UserResponse> iterator : iterators) {
+                advance(iterator);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public UserResponse next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.rest());
+            return head.user();
+        }
+
+        private void advance(Iterator<UserResponse> iterator) {
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+
+        private record Head(UserResponse user, Iterator<UserResponse> rest) {
+        }
+    }
+}
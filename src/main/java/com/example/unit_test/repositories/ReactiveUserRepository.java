@@ -0,0 +1,11 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.models.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User,String> {
+    Mono<User> findUserByUserName(String userName);
+
+    Mono<User> findUserByEmail(String email);
+}
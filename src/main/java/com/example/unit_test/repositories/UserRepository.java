@@ -2,11 +2,20 @@ package com.example.unit_test.repositories;
 
 import com.example.unit_test.models.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User,String> {
+public interface UserRepository extends MongoRepository<User,String>, UserRepositoryCustom {
     User findUserByUserName(String userName);
 
     User findUserByEmail(String email);
+
+    @Query(value = "{ 'userName': { $in: ?0 } }", fields = "{ 'userName': 1 }")
+    List<User> findAllByUserNameIn(Collection<String> userNames);
+
+    @Query(value = "{ 'email': { $in: ?0 } }", fields = "{ 'email': 1 }")
+    List<User> findAllByEmailIn(Collection<String> emails);
 }
@@ -0,0 +1,53 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.utils.DuplicateKeyField;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface UserRepositoryCustom {
+    // everything UserResponse carries besides the id
+    List<String> USER_RESPONSE_FIELDS = List.of("userName", "email", "firstName", "lastName", "phoneNumber");
+
+    /**
+     * Inserts all users with a single unordered insertMany. Documents rejected by one of the
+     * unique indexes are reported by their position in {@code users}; everything else is written.
+     */
+    Map<Integer, DuplicateKeyField> insertUnordered(List<User> users);
+
+    /**
+     * Reads only the fields of {@link UserResponse} and decodes them directly into it.
+     */
+    UserResponse findUserResponseByUserName(String userName);
+
+    /**
+     * Reads only the id and version of the user, enough to compute its ETag.
+     */
+    UserResponse findUserVersionByUserName(String userName);
+
+    /**
+     * Users whose userName is one of {@code userNames}, read with a single $in query and decoded like
+     * {@link #findUserResponseByUserName}. Unknown values are simply absent from the result.
+     */
+    List<UserResponse> findUserResponsesByUserNameIn(Collection<String> userNames);
+
+    /**
+     * Same as {@link #findUserResponsesByUserNameIn}, matching on email.
+     */
+    List<UserResponse> findUserResponsesByEmailIn(Collection<String> emails);
+
+    /**
+     * Keyset page in {@code _id} order: up to {@code limit} users whose id is greater than
+     * {@code afterId} (from the start when null), with only the id and {@code fields} filled in.
+     */
+    List<UserResponse> findUserResponsesAfter(String afterId, int limit, Collection<String> fields);
+
+    /**
+     * All users in {@code _id} order, read lazily from a server cursor. The stream must be closed.
+     */
+    Stream<UserResponse> streamUserResponses();
+}
@@ -0,0 +1,134 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.utils.DuplicateKeyField;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final Bson USER_RESPONSE_PROJECTION = Projections.include(
+            Stream.concat(USER_RESPONSE_FIELDS.stream(), Stream.of("version")).toList());
+    private static final Bson VERSION_PROJECTION = Projections.include("version");
+    private static final Bson ID_ORDER = Sorts.ascending("_id");
+    private static final int STREAM_BATCH_SIZE = 1_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoCollection<UserResponse> userResponses;
+
+    public UserRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        MongoCollection<?> users = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class));
+        this.userResponses = users.withDocumentClass(UserResponse.class)
+                .withCodecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromCodecs(new UserResponseCodec()), users.getCodecRegistry()));
+    }
+
+    @Override
+    public Map<Integer, DuplicateKeyField> insertUnordered(List<User> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        // bulk inserts skip the version initialization MongoTemplate.insert does
+        for (User user : users) {
+            if (user.getVersion() == null) {
+                user.setVersion(0L);
+            }
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)
+                    .insert(users)
+                    .execute();
+            return Map.of();
+        } catch (BulkOperationException ex) {
+            Map<Integer, DuplicateKeyField> rejected = new HashMap<>();
+            for (BulkWriteError error : ex.getErrors()) {
+                DuplicateKeyField field = ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+                        ? DuplicateKeyField.fromErrorMessage(error.getMessage())
+                        : null;
+                if (field == null) {
+                    throw ex;
+                }
+                rejected.put(error.getIndex(), field);
+            }
+            return rejected;
+        }
+    }
+
+    @Override
+    public UserResponse findUserResponseByUserName(String userName) {
+        return userResponses.find(Filters.eq("userName", userName))
+                .projection(USER_RESPONSE_PROJECTION)
+                .first();
+    }
+
+    @Override
+    public UserResponse findUserVersionByUserName(String userName) {
+        return userResponses.find(Filters.eq("userName", userName))
+                .projection(VERSION_PROJECTION)
+                .first();
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByUserNameIn(Collection<String> userNames) {
+        return findUserResponsesIn("userName", userNames);
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesByEmailIn(Collection<String> emails) {
+        return findUserResponsesIn("email", emails);
+    }
+
+    private List<UserResponse> findUserResponsesIn(String field, Collection<String> values) {
+        if (values.isEmpty()) {
+            return List.of();
+        }
+        return userResponses.find(Filters.in(field, values))
+                .projection(USER_RESPONSE_PROJECTION)
+                .into(new ArrayList<>(values.size()));
+    }
+
+    @Override
+    public List<UserResponse> findUserResponsesAfter(String afterId, int limit, Collection<String> fields) {
+        // ids written by the application are ObjectIds; anything else was stored as a plain string
+        Bson filter = afterId == null ? Filters.empty()
+                : Filters.gt("_id", ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId);
+        return userResponses.find(filter)
+                .projection(Projections.include(new ArrayList<>(fields)))
+                .sort(ID_ORDER)
+                .limit(limit)
+                .into(new ArrayList<>(limit));
+    }
+
+    @Override
+    public Stream<UserResponse> streamUserResponses() {
+        MongoCursor<UserResponse> cursor = userResponses.find()
+                .projection(USER_RESPONSE_PROJECTION)
+                .sort(ID_ORDER)
+                .batchSize(STREAM_BATCH_SIZE)
+                .cursor();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Decodes a {@code users} document straight into a {@link UserResponse}, field by field, without
+ * going through an intermediate {@code Document}, the {@code User} entity or Spring's reflective
+ * mapping. Fields it does not know are skipped.
+ */
+public class UserResponseCodec implements Codec<UserResponse> {
+
+    @Override
+    public UserResponse decode(BsonReader reader, DecoderContext decoderContext) {
+        UserResponse userResponse = new UserResponse();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> userResponse.setId(readId(reader));
+                case "userName" -> userResponse.setUserName(readString(reader));
+                case "email" -> userResponse.setEmail(readString(reader));
+                case "firstName" -> userResponse.setFirstName(readString(reader));
+                case "lastName" -> userResponse.setLastName(readString(reader));
+                case "phoneNumber" -> userResponse.setPhoneNumber(readString(reader));
+                case "version" -> userResponse.setVersion(readLong(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return userResponse;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, UserResponse userResponse, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (userResponse.getId() != null) {
+            writer.writeName("_id");
+            if (ObjectId.isValid(userResponse.getId())) {
+                writer.writeObjectId(new ObjectId(userResponse.getId()));
+            } else {
+                writer.writeString(userResponse.getId());
+            }
+        }
+        writeString(writer, "userName", userResponse.getUserName());
+        writeString(writer, "email", userResponse.getEmail());
+        writeString(writer, "firstName", userResponse.getFirstName());
+        writeString(writer, "lastName", userResponse.getLastName());
+        writeString(writer, "phoneNumber", userResponse.getPhoneNumber());
+        if (userResponse.getVersion() != null) {
+            writer.writeInt64("version", userResponse.getVersion());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<UserResponse> getEncoderClass() {
+        return UserResponse.class;
+    }
+
+    private static String readId(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case OBJECT_ID -> reader.readObjectId().toHexString();
+            case STRING -> reader.readString();
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static Long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT64 -> reader.readInt64();
+            case INT32 -> (long) reader.readInt32();
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+}
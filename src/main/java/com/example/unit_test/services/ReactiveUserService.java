@@ -0,0 +1,85 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserLookupRequest;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.repositories.ReactiveUserRepository;
+import com.example.unit_test.utils.DuplicateKeyField;
+import com.example.unit_test.utils.DuplicateResourceException;
+import com.example.unit_test.utils.MissingCredentialsException;
+import com.example.unit_test.utils.ErrorResponses;
+import com.example.unit_test.utils.UserNotFoundException;
+import io.micrometer.common.util.StringUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+import static com.example.unit_test.services.UserMapper.*;
+import static com.example.unit_test.utils.Constants.*;
+
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveUserService {
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserService userService;
+    private final UserResponseCache userResponseCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Mono<UserResponse> getUserByUserName(String userName) {
+        return reactiveUserRepository.findUserByUserName(userName)
+                .map(UserMapper::mapUserToUserResponse)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.withoutStackTrace(ErrorResponses.notFoundMessage(userName))));
+    }
+
+    public Mono<Void> createUser(UserRequest userRequest) {
+        if (StringUtils.isBlank(userRequest.getUserName()) && StringUtils.isBlank(userRequest.getEmail())) {
+            return Mono.error(MissingCredentialsException.withoutStackTrace(MISSING_CREDENTIALS_EXCEPTION_MESSAGE));
+        }
+        // same bookkeeping as UserService.tryCreateUser; the listeners only touch memory, so they run on the event loop
+        return reactiveUserRepository.insert(mapUserRequestToUser(userRequest))
+                .doOnNext(user -> {
+                    userResponseCache.invalidate(userRequest.getUserName());
+                    eventPublisher.publishEvent(new UsersCreatedEvent(List.of(user)));
+                })
+                .then()
+                .onErrorResume(DuplicateKeyException.class, ex -> duplicateKeyField(userRequest, ex)
+                        .switchIfEmpty(Mono.error(ex))
+                        .flatMap(field -> Mono.error(DuplicateResourceException.withoutStackTrace(field == DuplicateKeyField.USER_NAME
+                                ? USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE
+                                : EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE))));
+    }
+
+    // the batch path is a handful of bulk round trips, so it reuses the blocking implementation off the event loop
+    public Mono<List<UserCreationResult>> createUsers(List<UserRequest> userRequests) {
+        return Mono.fromCallable(() -> userService.createUsers(userRequests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<UserLookupResponse> lookupUsers(UserLookupRequest userLookupRequest) {
+        return Mono.fromCallable(() -> userService.lookupUsers(userLookupRequest))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // same disambiguation as UserService: missing values collide with each other on the unique indexes
+    private Mono<DuplicateKeyField> duplicateKeyField(UserRequest userRequest, DuplicateKeyException ex) {
+        DuplicateKeyField field = DuplicateKeyField.fromErrorMessage(ex.getMessage());
+        if (field == DuplicateKeyField.USER_NAME && StringUtils.isBlank(userRequest.getUserName())) {
+            return reactiveUserRepository.findUserByEmail(userRequest.getEmail()).map(user -> DuplicateKeyField.EMAIL);
+        }
+        if (field == DuplicateKeyField.EMAIL && StringUtils.isBlank(userRequest.getEmail())) {
+            return reactiveUserRepository.findUserByUserName(userRequest.getUserName()).map(user -> DuplicateKeyField.USER_NAME);
+        }
+        // an id clash is not the caller's duplicate, it stays a server error
+        return Mono.justOrEmpty(field).filter(found -> found != DuplicateKeyField.ID);
+    }
+}
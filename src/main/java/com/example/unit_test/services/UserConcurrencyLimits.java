@@ -0,0 +1,71 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.utils.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * One adaptive limit for requests that read users and one for requests that write them. Each moves
+ * with the latency of the matching Mongo commands, so a write backlog only sheds writes.
+ */
+@Component
+public class UserConcurrencyLimits implements MeterBinder {
+    private static final Set<String> READ_COMMANDS = Set.of("find", "getMore", "aggregate", "count", "distinct");
+    private static final Set<String> WRITE_COMMANDS = Set.of("insert", "update", "delete", "findAndModify");
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter reads;
+    private final AdaptiveConcurrencyLimiter writes;
+
+    public UserConcurrencyLimits(UserProperties userProperties) {
+        UserProperties.Concurrency settings = userProperties.getConcurrency();
+        this.enabled = settings.isEnabled();
+        this.reads = limiter(settings.getRead());
+        this.writes = limiter(settings.getWrite());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public AdaptiveConcurrencyLimiter forRequest(boolean write) {
+        return write ? writes : reads;
+    }
+
+    // commands outside the user read and write paths (hello, createIndexes, ...) say nothing about load
+    public void onMongoCommand(String commandName, long elapsedNanos) {
+        if (READ_COMMANDS.contains(commandName)) {
+            reads.onSample(elapsedNanos);
+        } else if (WRITE_COMMANDS.contains(commandName)) {
+            writes.onSample(elapsedNanos);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "read", reads);
+        bind(registry, "write", writes);
+    }
+
+    private static void bind(MeterRegistry registry, String kind, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("user.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("kind", kind)
+                .register(registry);
+        Gauge.builder("user.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("kind", kind)
+                .register(registry);
+        FunctionCounter.builder("user.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(UserProperties.Concurrency.Limit limit) {
+        return new AdaptiveConcurrencyLimiter(limit.getInitial(), limit.getMin(), limit.getMax());
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.FilterStatsResponse;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.utils.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters over the userName and email of every stored user. A "definitely absent" answer
+ * lets the create path skip the lookup query; "maybe present" still has to ask Mongo. The filters
+ * are built the first time a create path asks, so the default insert-first single create never
+ * pays for the scan; until that build has finished every value is reported as maybe present.
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter implements MeterBinder {
+    private final UserRepository userRepository;
+    private final UserProperties.BloomFilter settings;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicLong definitelyAbsent = new AtomicLong();
+    private final AtomicLong maybePresent = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicBoolean buildRequested = new AtomicBoolean();
+
+    private volatile Filters current;
+    // receives the creates that happen while a rebuild is scanning the collection
+    private volatile Filters building;
+
+    public UserExistenceFilter(UserRepository userRepository, UserProperties userProperties) {
+        this.userRepository = userRepository;
+        this.settings = userProperties.getBloomFilter();
+    }
+
+    public boolean rebuildAsync() {
+        if (!settings.isEnabled() || rebuildLock.isLocked()) {
+            return false;
+        }
+        Thread.ofVirtual().name("user-existence-filter-rebuild").start(this::rebuild);
+        return true;
+    }
+
+    public void rebuild() {
+        if (!settings.isEnabled() || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            Filters filters = new Filters(settings.getExpectedInsertions(), settings.getFalsePositiveProbability());
+            building = filters;
+            long count = 0;
+            try (Stream<UserResponse> users = userRepository.streamUserResponses()) {
+                for (UserResponse user : (Iterable<UserResponse>) users::iterator) {
+                    filters.put(user.getUserName(), user.getEmail());
+                    count++;
+                }
+            }
+            current = filters;
+            log.info("Built user existence filters from {} users", count);
+        } catch (RuntimeException ex) {
+            log.warn("Could not build user existence filters", ex);
+            // let the next check try again
+            buildRequested.set(false);
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean mightContainUserName(String userName) {
+        Filters filters = builtOrRequested();
+        return record(filters == null || filters.userNames.mightContain(userName));
+    }
+
+    public boolean mightContainEmail(String email) {
+        Filters filters = builtOrRequested();
+        return record(filters == null || filters.emails.mightContain(email));
+    }
+
+    private Filters builtOrRequested() {
+        Filters filters = current;
+        if (filters == null && settings.isEnabled() && buildRequested.compareAndSet(false, true)) {
+            rebuildAsync();
+        }
+        return filters;
+    }
+
+    public void recordFalsePositives(long count) {
+        falsePositives.addAndGet(count);
+    }
+
+    @EventListener
+    public void onUsersCreated(UsersCreatedEvent event) {
+        for (User user : event.users()) {
+            add(user.getUserName(), user.getEmail());
+        }
+    }
+
+    public void add(String userName, String email) {
+        Filters filters = current;
+        if (filters != null) {
+            filters.put(userName, email);
+        }
+        filters = building;
+        if (filters != null) {
+            filters.put(userName, email);
+        }
+    }
+
+    public FilterStatsResponse stats() {
+        Filters filters = current;
+        long absent = definitelyAbsent.get();
+        long maybe = maybePresent.get();
+        long wrong = falsePositives.get();
+        long checks = absent + maybe;
+        return FilterStatsResponse.builder()
+                .enabled(settings.isEnabled())
+                .ready(filters != null)
+                .bitCount(filters == null ? 0 : filters.userNames.bitCount())
+                .hashCount(filters == null ? 0 : filters.userNames.hashCount())
+                .checks(checks)
+                .definitelyAbsent(absent)
+                .maybePresent(maybe)
+                .falsePositives(wrong)
+                .hitRate(checks == 0 ? 0 : (double) absent / checks)
+                // every absent value was either answered "definitely absent" or was a false positive
+                .falsePositiveRate(absent + wrong == 0 ? 0 : (double) wrong / (absent + wrong))
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.existence.filter.checks", definitelyAbsent, AtomicLong::get)
+                .tag("result", "definitely-absent")
+                .register(registry);
+        FunctionCounter.builder("user.existence.filter.checks", maybePresent, AtomicLong::get)
+                .tag("result", "maybe-present")
+                .register(registry);
+        FunctionCounter.builder("user.existence.filter.false.positives", falsePositives, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("user.existence.filter.ready", this, filter -> filter.current == null ? 0 : 1)
+                .register(registry);
+    }
+
+    private boolean record(boolean mightContain) {
+        (mightContain ? maybePresent : definitelyAbsent).incrementAndGet();
+        return mightContain;
+    }
+
+    private static class Filters {
+        private final BloomFilter userNames;
+        private final BloomFilter emails;
+
+        Filters(long expectedInsertions, double falsePositiveProbability) {
+            userNames = new BloomFilter(expectedInsertions, falsePositiveProbability);
+            emails = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        }
+
+        void put(String userName, String email) {
+            if (userName != null) {
+                userNames.put(userName);
+            }
+            if (email != null) {
+                emails.put(email);
+            }
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserImportResponse;
+import com.example.unit_test.dto.UserImportStatus;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.utils.CsvUserRecordParser;
+import com.example.unit_test.utils.InvalidRequestException;
+import com.example.unit_test.utils.LineReader;
+import com.example.unit_test.utils.NdjsonUserRecordParser;
+import com.example.unit_test.utils.UserRecordParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Imports users from NDJSON or CSV files in the background. One thread reads the file line by
+ * line and hands chunks of parsed users to a few writers, each of which creates its chunk with
+ * {@link UserService#createUsers}, so the rules, the single unordered insertMany and the events
+ * are those of POST /api/user/batch. The queue between them holds two chunks per writer, which
+ * bounds memory whatever the size of the file. Every rejected line is written to a reject file.
+ * A finished job stays queryable for {@code job-ttl}; running jobs are never dropped.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final long HAND_OVER_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final UserProperties.BulkImport settings;
+    private final Cache<String, Job> jobs;
+
+    public UserImportService(UserService userService, ObjectMapper objectMapper, UserProperties userProperties) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.settings = userProperties.getBulkImport();
+        long jobTtl = settings.getJobTtl().toNanos();
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, Job>() {
+                    @Override
+                    public long expireAfterCreate(String key, Job job, long currentTime) {
+                        return job.finishedAt != null ? jobTtl : Long.MAX_VALUE;
+                    }
+
+                    // a job is put again when it finishes, which starts its time to live
+                    @Override
+                    public long expireAfterUpdate(String key, Job job, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, job, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Job job, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // the upload is spooled to the work directory first, so the request ends once it is received
+    public UserImportResponse importUpload(InputStream body, Format format) throws IOException {
+        Path upload = Files.createTempFile(workDirectory(), "user-import-", ".upload");
+        try {
+            Files.copy(body, upload, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(upload);
+            throw ex;
+        }
+        return start(upload, format, true);
+    }
+
+    public UserImportResponse importFile(String path, Format format) throws InvalidRequestException, IOException {
+        if (settings.getDirectory() == null) {
+            throw new InvalidRequestException("Importing server-side files is disabled");
+        }
+        Path directory = Path.of(settings.getDirectory()).toRealPath();
+        Path file = directory.resolve(path).normalize();
+        // resolved through symbolic links as well, so nothing outside the directory can be named
+        if (!file.startsWith(directory) || !Files.isRegularFile(file) || !file.toRealPath().startsWith(directory)) {
+            throw new InvalidRequestException("No importable file " + path);
+        }
+        return start(file, format, false);
+    }
+
+    public Optional<UserImportResponse> status(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(Job::toResponse);
+    }
+
+    private UserImportResponse start(Path file, Format format, boolean deleteWhenDone) throws IOException {
+        String jobId = new ObjectId().toHexString();
+        Job job = new Job(jobId, format, Files.size(file), workDirectory().resolve("user-import-" + jobId + "-rejects.ndjson"));
+        jobs.put(jobId, job);
+        Thread.ofVirtual().name("user-import-" + jobId).start(() -> run(job, file, deleteWhenDone));
+        return job.toResponse();
+    }
+
+    private void run(Job job, Path file, boolean deleteWhenDone) {
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(settings.getWriters() * 2);
+        List<Thread> writers = new ArrayList<>();
+        try (Rejects rejects = new Rejects(job.rejectsFile);
+             InputStream in = Files.newInputStream(file)) {
+            for (int i = 0; i < settings.getWriters(); i++) {
+                writers.add(Thread.ofVirtual().name("user-import-" + job.jobId + "-writer-" + i).start(() -> write(job, chunks, rejects)));
+            }
+            UserImportStatus outcome = UserImportStatus.COMPLETED;
+            try {
+                read(job, new LineReader(in, settings.getMaxLineLength()), chunks, writers, rejects);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("User import {} failed after {} records", job.jobId, job.records.get(), ex);
+                // a lost writer already said why
+                if (!job.writerFailed) {
+                    job.error = ex.getMessage();
+                }
+                outcome = UserImportStatus.FAILED;
+            } finally {
+                for (int i = 0; i < writers.size(); i++) {
+                    if (!handOver(chunks, Chunk.END, writers)) {
+                        break;
+                    }
+                }
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+            }
+            // only once the writers are done, so a finished job reports its final counts
+            job.status = job.writerFailed ? UserImportStatus.FAILED : outcome;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("User import {} failed", job.jobId, ex);
+            job.error = ex.getMessage();
+            job.status = UserImportStatus.FAILED;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            job.error = "Interrupted";
+            job.status = UserImportStatus.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            jobs.put(job.jobId, job);
+            if (deleteWhenDone) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ex) {
+                    log.warn("Could not delete import upload {}", file, ex);
+                }
+            }
+            log.info("User import {} {}: {} records, {} created, {} rejected", job.jobId, job.status,
+                    job.records.get(), job.created.get(), job.rejected.get());
+        }
+    }
+
+    private void read(Job job, LineReader lines, BlockingQueue<Chunk> chunks, List<Thread> writers, Rejects rejects) throws IOException, InterruptedException {
+        UserRecordParser parser = job.format == Format.NDJSON ? new NdjsonUserRecordParser(objectMapper.getFactory()) : null;
+        Chunk chunk = new Chunk(settings.getChunkSize());
+        while (lines.next()) {
+            job.bytesRead.set(lines.bytesRead());
+            if (lines.isBlank()) {
+                continue;
+            }
+            if (parser == null) {
+                parser = CsvUserRecordParser.fromHeader(lines.line(), lines.length());
+                continue;
+            }
+            job.records.incrementAndGet();
+            if (lines.isTooLong()) {
+                reject(job, rejects, lines.lineNumber(), "MALFORMED", "Line longer than " + settings.getMaxLineLength() + " bytes", null);
+                continue;
+            }
+            UserRequest userRequest;
+            try {
+                userRequest = parser.parse(lines.line(), lines.length());
+            } catch (IllegalArgumentException ex) {
+                reject(job, rejects, lines.lineNumber(), "MALFORMED", ex.getMessage(), null);
+                continue;
+            }
+            chunk.add(lines.lineNumber(), userRequest);
+            if (chunk.isFull()) {
+                requireHandOver(chunks, chunk, writers);
+                chunk = new Chunk(settings.getChunkSize());
+            }
+        }
+        if (!chunk.users.isEmpty()) {
+            requireHandOver(chunks, chunk, writers);
+        }
+    }
+
+    private static void requireHandOver(BlockingQueue<Chunk> chunks, Chunk chunk, List<Thread> writers) throws InterruptedException {
+        if (!handOver(chunks, chunk, writers)) {
+            throw new IllegalStateException("No import writer is left to take the records");
+        }
+    }
+
+    // false once every writer has died, a plain put would then block the reader forever
+    private static boolean handOver(BlockingQueue<Chunk> chunks, Chunk chunk, List<Thread> writers) throws InterruptedException {
+        while (!chunks.offer(chunk, HAND_OVER_INTERVAL, TimeUnit.NANOSECONDS)) {
+            if (writers.stream().noneMatch(Thread::isAlive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(Job job, BlockingQueue<Chunk> chunks, Rejects rejects) {
+        try {
+            for (Chunk chunk = chunks.take(); chunk != Chunk.END; chunk = chunks.take()) {
+                List<UserCreationResult> results;
+                try {
+                    results = userService.createUsers(chunk.users);
+                } catch (RuntimeException ex) {
+                    log.warn("User import {} could not write a chunk", job.jobId, ex);
+                    for (int i = 0; i < chunk.users.size(); i++) {
+                        reject(job, rejects, chunk.lineNumbers[i], UserCreationStatus.FAILED.name(), ex.getMessage(), chunk.users.get(i));
+                    }
+                    continue;
+                }
+                for (UserCreationResult result : results) {
+                    if (result.getStatus() == UserCreationStatus.CREATED) {
+                        job.created.incrementAndGet();
+                    } else {
+                        int i = result.getIndex();
+                        reject(job, rejects, chunk.lineNumbers[i], result.getStatus().name(), result.getMessage(), chunk.users.get(i));
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error ex) {
+            // the chunk it held is lost, so the job cannot complete
+            log.error("User import {} lost a writer", job.jobId, ex);
+            job.error = "A writer stopped: " + ex;
+            job.writerFailed = true;
+            throw ex;
+        }
+    }
+
+    private void reject(Job job, Rejects rejects, long line, String reason, String message, UserRequest record) {
+        job.rejected.incrementAndGet();
+        rejects.write(new Reject(line, reason, message, record));
+    }
+
+    private Path workDirectory() {
+        return Path.of(settings.getWorkDirectory() != null ? settings.getWorkDirectory() : System.getProperty("java.io.tmpdir"));
+    }
+
+    private static final class Job {
+        private final String jobId;
+        private final Format format;
+        private final long totalBytes;
+        private final Path rejectsFile;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private volatile UserImportStatus status = UserImportStatus.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile boolean writerFailed;
+
+        Job(String jobId, Format format, long totalBytes, Path rejectsFile) {
+            this.jobId = jobId;
+            this.format = format;
+            this.totalBytes = totalBytes;
+            this.rejectsFile = rejectsFile;
+        }
+
+        UserImportResponse toResponse() {
+            Instant finished = finishedAt;
+            Duration elapsed = Duration.between(startedAt, finished != null ? finished : Instant.now());
+            long records = this.records.get();
+            return UserImportResponse.builder()
+                    .jobId(jobId)
+                    .status(status)
+                    .format(format.name())
+                    .totalBytes(totalBytes)
+                    .bytesRead(bytesRead.get())
+                    .records(records)
+                    .created(created.get())
+                    .rejected(rejected.get())
+                    .recordsPerSecond(elapsed.isZero() ? 0 : records * 1e9 / elapsed.toNanos())
+                    .startedAt(startedAt)
+                    .finishedAt(finished)
+                    .rejectsFile(rejectsFile.toString())
+                    .error(error)
+                    .build();
+        }
+    }
+
+    private static final class Chunk {
+        private static final Chunk END = new Chunk(0);
+
+        private final List<UserRequest> users;
+        private final long[] lineNumbers;
+
+        Chunk(int size) {
+            this.users = new ArrayList<>(size);
+            this.lineNumbers = new long[size];
+        }
+
+        void add(long lineNumber, UserRequest userRequest) {
+            lineNumbers[users.size()] = lineNumber;
+            users.add(userRequest);
+        }
+
+        boolean isFull() {
+            return users.size() == lineNumbers.length;
+        }
+    }
+
+    private record Reject(long line, String reason, String message, UserRequest record) {
+    }
+
+    // shared by the reader and the writers
+    private final class Rejects implements AutoCloseable {
+        private final BufferedWriter writer;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Rejects(Path file) throws IOException {
+            this.writer = Files.newBufferedWriter(file);
+        }
+
+        void write(Reject reject) {
+            lock.lock();
+            try {
+                writer.write(objectMapper.writeValueAsString(reject));
+                writer.newLine();
+            } catch (IOException ex) {
+                // still counted; a writer that threw here would leave the reader blocked on a full queue
+                log.warn("Could not record a rejected import line {}", reject.line(), ex);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.models.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on {@link User} once the application is ready, when
+ * {@code user.indexes.deferred} has taken them out of context refresh. Until they exist the
+ * unique indexes do not reject duplicates, so only defer against a collection that has them already.
+ */
+@Slf4j
+@Component
+public class UserIndexInitializer {
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final UserProperties.Indexes settings;
+
+    public UserIndexInitializer(ObjectProvider<MongoTemplate> mongoTemplate, UserProperties userProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.settings = userProperties.getIndexes();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createOnStartup() {
+        // the in-memory profile has no MongoTemplate
+        MongoTemplate template = mongoTemplate.getIfAvailable();
+        if (settings.isDeferred() && template != null) {
+            Thread.ofVirtual().name("user-index-creation").start(() -> createIndexes(template));
+        }
+    }
+
+    public void createIndexes(MongoTemplate template) {
+        try {
+            ensureIndexes(template);
+            log.info("Created deferred user indexes in {}", template.getDb().getName());
+        } catch (RuntimeException ex) {
+            log.error("Could not create deferred user indexes in {}", template.getDb().getName(), ex);
+        }
+    }
+
+    public static void ensureIndexes(MongoTemplate template) {
+        IndexOperations indexOperations = template.indexOps(User.class);
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext());
+        resolver.resolveIndexFor(User.class).forEach(indexOperations::ensureIndex);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.utils.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Shares one userName query between concurrent lookups of the same user, so a burst of requests
+ * for a popular profile costs one round trip whether or not the result cache is on.
+ */
+@Component
+public class UserLookupCoalescer implements MeterBinder {
+    private final SingleFlight<String, UserResponse> lookups = new SingleFlight<>();
+    private final boolean enabled;
+
+    public UserLookupCoalescer(UserProperties properties) {
+        this.enabled = properties.getLookup().isCoalesce();
+    }
+
+    // the loader returns null for an unknown userName, and every waiter gets that null
+    public UserResponse load(String userName, Function<String, UserResponse> loader) {
+        return enabled ? lookups.execute(userName, loader) : loader.apply(userName);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.lookup.queries", lookups, SingleFlight::loads)
+                .description("userName queries sent to the repository")
+                .register(registry);
+        FunctionCounter.builder("user.lookup.queries.saved", lookups, SingleFlight::shared)
+                .description("lookups answered by a query another request already had in flight")
+                .register(registry);
+    }
+}
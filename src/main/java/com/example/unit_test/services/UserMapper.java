@@ -0,0 +1,32 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+
+public final class UserMapper {
+    private UserMapper() {
+    }
+
+    public static UserResponse mapUserToUserResponse(User user) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .userName(user.getUserName())
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .phoneNumber(user.getPhoneNumber())
+                .version(user.getVersion())
+                .build();
+    }
+
+    public static User mapUserRequestToUser(UserRequest userRequest) {
+        return User.builder()
+                .userName(userRequest.getUserName())
+                .email(userRequest.getEmail())
+                .firstName(userRequest.getFirstName())
+                .lastName(userRequest.getLastName())
+                .phoneNumber(userRequest.getPhoneNumber())
+                .build();
+    }
+}
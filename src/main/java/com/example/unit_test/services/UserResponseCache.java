@@ -0,0 +1,117 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.CacheStatsResponse;
+import com.example.unit_test.dto.UserResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of {@link UserResponse} keyed by userName. Misses are cached as well, for
+ * a shorter time, so repeated probes for an unknown userName do not reach Mongo.
+ */
+@Component
+public class UserResponseCache implements MeterBinder {
+    private final Cache<String, Entry> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserResponseCache(UserProperties properties) {
+        UserProperties.Cache settings = properties.getCache();
+        if (!settings.isEnabled()) {
+            cache = null;
+            return;
+        }
+        long ttl = settings.getTtl().toNanos();
+        long negativeTtl = settings.getNegativeTtl().toNanos();
+        cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.user() != null ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    // the loader returns null for an unknown userName
+    public Optional<UserResponse> get(String userName, Function<String, UserResponse> loader) {
+        if (cache == null) {
+            return Optional.ofNullable(loader.apply(userName));
+        }
+        Entry entry = cache.getIfPresent(userName);
+        if (entry == null) {
+            // Loaded outside of Caffeine's compute: a loader blocking on Mongo inside the map's bin lock
+            // would pin the carrier thread when requests run on virtual threads.
+            long generation = invalidations.get();
+            entry = new Entry(loader.apply(userName));
+            // a miss that raced with a create must not be remembered
+            if (entry.user() != null || invalidations.get() == generation) {
+                cache.put(userName, entry);
+            }
+        }
+        return Optional.ofNullable(entry.user());
+    }
+
+    // the cached user, without loading it on a miss; empty for a cached "not found" as well
+    public Optional<UserResponse> getIfPresent(String userName) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        Entry entry = cache.getIfPresent(userName);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.user());
+    }
+
+    public void invalidate(String userName) {
+        if (cache != null && userName != null) {
+            invalidations.incrementAndGet();
+            cache.invalidate(userName);
+        }
+    }
+
+    public CacheStatsResponse stats() {
+        if (cache == null) {
+            return CacheStatsResponse.builder().enabled(false).build();
+        }
+        CacheStats stats = cache.stats();
+        return CacheStatsResponse.builder()
+                .enabled(true)
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "users");
+        }
+    }
+
+    // user is null for a cached miss
+    private record Entry(UserResponse user) {
+    }
+}
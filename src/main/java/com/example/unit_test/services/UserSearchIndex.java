@@ -0,0 +1,126 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.utils.PrefixIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * In-memory prefix indexes over the userName and email of every stored user, so autocomplete
+ * never reaches Mongo. Built once at startup and kept current from {@link UsersCreatedEvent}.
+ * Until the build has finished only the users created since startup are found.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex implements MeterBinder {
+    private final UserRepository userRepository;
+    private final UserProperties.Search settings;
+
+    private volatile Indexes current = new Indexes(new PrefixIndex(), new PrefixIndex());
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository, UserProperties userProperties) {
+        this.userRepository = userRepository;
+        this.settings = userProperties.getSearch();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (settings.isEnabled()) {
+            Thread.ofVirtual().name("user-search-index-build").start(this::build);
+        }
+    }
+
+    public void build() {
+        try {
+            List<String> userNames = new ArrayList<>();
+            List<String> emails = new ArrayList<>();
+            try (Stream<UserResponse> users = userRepository.streamUserResponses()) {
+                for (UserResponse user : (Iterable<UserResponse>) users::iterator) {
+                    if (user.getUserName() != null) {
+                        userNames.add(user.getUserName());
+                    }
+                    if (user.getEmail() != null) {
+                        emails.add(user.getEmail());
+                    }
+                }
+            }
+            Indexes started = current;
+            Indexes built = new Indexes(new PrefixIndex(userNames), new PrefixIndex(emails));
+            current = built;
+            // carry over the creates that arrived while the collection was being read
+            for (String userName : started.userNames.startingWith("", Integer.MAX_VALUE)) {
+                built.userNames.add(userName);
+            }
+            for (String email : started.emails.startingWith("", Integer.MAX_VALUE)) {
+                built.emails.add(email);
+            }
+            ready = true;
+            log.info("Built user search index from {} users", userNames.size());
+        } catch (RuntimeException ex) {
+            log.warn("Could not build user search index", ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<String> userNamesStartingWith(String prefix, int limit) {
+        return current.userNames.startingWith(prefix, limit);
+    }
+
+    public List<String> emailsStartingWith(String prefix, int limit) {
+        return current.emails.startingWith(prefix, limit);
+    }
+
+    @EventListener
+    public void onUsersCreated(UsersCreatedEvent event) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Indexes indexes = current;
+        for (User user : event.users()) {
+            indexes.userNames.add(user.getUserName());
+            indexes.emails.add(user.getEmail());
+        }
+        // a build may have swapped the indexes after the copy of its starting set was taken
+        Indexes latest = current;
+        if (latest != indexes) {
+            for (User user : event.users()) {
+                latest.userNames.add(user.getUserName());
+                latest.emails.add(user.getEmail());
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.search.index.size", this, index -> index.current.userNames.size())
+                .tag("field", "userName")
+                .register(registry);
+        Gauge.builder("user.search.index.size", this, index -> index.current.emails.size())
+                .tag("field", "email")
+                .register(registry);
+    }
+
+    private record Indexes(PrefixIndex userNames, PrefixIndex emails) {
+    }
+}
@@ -1,64 +1,353 @@
 package com.example.unit_test.services;
 
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserLookupRequest;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserPageResponse;
 import com.example.unit_test.dto.UserRequest;
 import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.dto.UserSearchResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
 import com.example.unit_test.models.User;
 import com.example.unit_test.repositories.UserRepository;
+import static com.example.unit_test.repositories.UserRepositoryCustom.USER_RESPONSE_FIELDS;
+import static com.example.unit_test.services.UserMapper.*;
 import static com.example.unit_test.utils.Constants.*;
+import com.example.unit_test.utils.DuplicateKeyField;
+import com.example.unit_test.utils.ErrorResponses;
 import com.example.unit_test.utils.MissingCredentialsException;
 import com.example.unit_test.utils.DuplicateResourceException;
+import com.example.unit_test.utils.InvalidRequestException;
 import com.example.unit_test.utils.UserNotFoundException;
 import io.micrometer.common.util.StringUtils;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", histogram = true)
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final int MAX_LOOKUP_SIZE = 1_000;
+    private static final int MAX_SEARCH_SIZE = 100;
     private final UserRepository userRepository;
+    private final UserResponseCache userResponseCache;
+    private final UserProperties userProperties;
+    private final UserExistenceFilter userExistenceFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserSearchIndex userSearchIndex;
+    private final UserLookupCoalescer userLookupCoalescer;
+    private final UserSnapshot userSnapshot;
     public UserResponse getUserByUserName(String userName) throws UserNotFoundException {
-        User user = userRepository.findUserByUserName(userName);
-        if (user == null) {
-            throw new UserNotFoundException("User with username " + userName + " not found");
+        return findUserByUserName(userName)
+                .orElseThrow(() -> UserNotFoundException.withoutStackTrace(ErrorResponses.notFoundMessage(userName)));
+    }
+
+    public Optional<UserResponse> findUserByUserName(String userName) {
+        return userResponseCache.get(userName, this::loadUserByUserName);
+    }
+
+    // a user in the snapshot is current, a userName missing from it may still exist
+    private UserResponse loadUserByUserName(String userName) {
+        UserResponse user = userSnapshot.find(userName);
+        return user != null ? user : userLookupCoalescer.load(userName, userRepository::findUserResponseByUserName);
+    }
+
+    // enough to answer If-None-Match: the cached user when there is one, only its id and version otherwise
+    public Optional<UserResponse> findUserVersion(String userName) {
+        Optional<UserResponse> cached = userResponseCache.getIfPresent(userName);
+        if (cached.isPresent()) {
+            return cached;
         }
-        return mapUserToUserResponse(user);
+        return Optional.ofNullable(userRepository.findUserVersionByUserName(userName));
     }
 
-    private UserResponse mapUserToUserResponse(User user) {
-        return UserResponse.builder()
-                .id(user.getId())
-                .userName(user.getUserName())
-                .email(user.getEmail())
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .phoneNumber(user.getPhoneNumber())
+    public UserPageResponse getUsers(String after, int limit, List<String> fields) throws InvalidRequestException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<String> projected = fields == null || fields.isEmpty() ? USER_RESPONSE_FIELDS : fields;
+        for (String field : projected) {
+            if (!USER_RESPONSE_FIELDS.contains(field)) {
+                throw new InvalidRequestException("Unknown field " + field + ", expected one of " + USER_RESPONSE_FIELDS);
+            }
+        }
+        List<UserResponse> users = userRepository.findUserResponsesAfter(after, limit, projected);
+        String nextCursor = users.size() < limit ? null : users.get(users.size() - 1).getId();
+        return UserPageResponse.builder()
+                .users(users)
+                .nextCursor(nextCursor)
                 .build();
     }
-    private User mapUserRequestToUser(UserRequest userRequest) {
-        return User.builder()
-                .userName(userRequest.getUserName())
-                .email(userRequest.getEmail())
-                .firstName(userRequest.getFirstName())
-                .lastName(userRequest.getLastName())
-                .phoneNumber(userRequest.getPhoneNumber())
+
+    // one $in query per field instead of a lookup per user; unknown values are listed rather than thrown
+    public UserLookupResponse lookupUsers(UserLookupRequest userLookupRequest) throws InvalidRequestException {
+        Set<String> userNames = distinctNonBlank(userLookupRequest.getUserNames());
+        Set<String> emails = distinctNonBlank(userLookupRequest.getEmails());
+        if (userNames.size() + emails.size() > MAX_LOOKUP_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_LOOKUP_SIZE + " userNames and emails can be looked up at once");
+        }
+        // the existence filter is not consulted here: it misses users written around the application, and a
+        // read must not report an existing user as missing
+        Map<String, UserResponse> foundByUserName = userNames.isEmpty() ? Map.of() : userRepository.findUserResponsesByUserNameIn(userNames)
+                .stream().collect(Collectors.toMap(UserResponse::getUserName, Function.identity()));
+        Map<String, UserResponse> foundByEmail = emails.isEmpty() ? Map.of() : userRepository.findUserResponsesByEmailIn(emails)
+                .stream().collect(Collectors.toMap(UserResponse::getEmail, Function.identity()));
+
+        Map<String, UserResponse> usersByUserName = new LinkedHashMap<>();
+        List<String> missingUserNames = new ArrayList<>();
+        for (String userName : userNames) {
+            UserResponse userResponse = foundByUserName.get(userName);
+            if (userResponse != null) {
+                usersByUserName.put(userName, userResponse);
+            } else {
+                missingUserNames.add(userName);
+            }
+        }
+        Map<String, UserResponse> usersByEmail = new LinkedHashMap<>();
+        List<String> missingEmails = new ArrayList<>();
+        for (String email : emails) {
+            UserResponse userResponse = foundByEmail.get(email);
+            if (userResponse != null) {
+                usersByEmail.put(email, userResponse);
+            } else {
+                missingEmails.add(email);
+            }
+        }
+        return UserLookupResponse.builder()
+                .usersByUserName(usersByUserName)
+                .usersByEmail(usersByEmail)
+                .missingUserNames(missingUserNames)
+                .missingEmails(missingEmails)
+                .build();
+    }
+
+    private static Set<String> distinctNonBlank(List<String> values) {
+        Set<String> distinct = new LinkedHashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                if (StringUtils.isNotBlank(value)) {
+                    distinct.add(value);
+                }
+            }
+        }
+        return distinct;
+    }
+
+    // answered from memory; matching is case-sensitive, like the unique indexes
+    public UserSearchResponse searchUsers(String prefix, int limit, String field) throws InvalidRequestException {
+        if (!userSearchIndex.isEnabled()) {
+            throw new InvalidRequestException("Search is disabled");
+        }
+        if (StringUtils.isBlank(prefix)) {
+            throw new InvalidRequestException("prefix must not be blank");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_SIZE) {
+            throw new InvalidRequestException("limit must be between 1 and " + MAX_SEARCH_SIZE);
+        }
+        List<String> matches = switch (field) {
+            case "userName" -> userSearchIndex.userNamesStartingWith(prefix, limit);
+            case "email" -> userSearchIndex.emailsStartingWith(prefix, limit);
+            default -> throw new InvalidRequestException("Unknown field " + field + ", expected userName or email");
+        };
+        return UserSearchResponse.builder()
+                .field(field)
+                .prefix(prefix)
+                .matches(matches)
+                .complete(userSearchIndex.isReady())
                 .build();
     }
 
+    // the caller must close the stream, it holds a server cursor
+    public Stream<UserResponse> streamUsers() {
+        return userRepository.streamUserResponses();
+    }
+
     public void createUser(UserRequest userRequest) throws DuplicateResourceException, MissingCredentialsException {
+        switch (tryCreateUser(userRequest)) {
+            case MISSING_CREDENTIALS -> throw MissingCredentialsException.withoutStackTrace(MISSING_CREDENTIALS_EXCEPTION_MESSAGE);
+            case DUPLICATE_USERNAME -> throw DuplicateResourceException.withoutStackTrace(USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            case DUPLICATE_EMAIL -> throw DuplicateResourceException.withoutStackTrace(EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            case CREATED -> { }
+        }
+    }
+
+    // rejections are reported through the status rather than thrown
+    public UserCreationStatus tryCreateUser(UserRequest userRequest) {
         String userName = userRequest.getUserName();
         String email = userRequest.getEmail();
         if (StringUtils.isBlank(userName) && StringUtils.isBlank(email)) {
-            throw new MissingCredentialsException(MISSING_CREDENTIALS_EXCEPTION_MESSAGE);
+            return UserCreationStatus.MISSING_CREDENTIALS;
         }
+        User user = mapUserRequestToUser(userRequest);
+        UserCreationStatus status = userProperties.getCreate().isInsertFirst() ? insertUser(userRequest, user) : checkAndSaveUser(userRequest, user);
+        if (status == UserCreationStatus.CREATED) {
+            userResponseCache.invalidate(userName);
+            eventPublisher.publishEvent(new UsersCreatedEvent(List.of(user)));
+        }
+        return status;
+    }
+
+    // one round trip: the unique indexes on userName and email reject duplicates, even between concurrent creates
+    private UserCreationStatus insertUser(UserRequest userRequest, User user) {
+        try {
+            userRepository.insert(user);
+            return UserCreationStatus.CREATED;
+        } catch (DuplicateKeyException ex) {
+            return toDuplicateStatus(userRequest, ex);
+        }
+    }
 
-        if (StringUtils.isNotBlank(userName) && (userRepository.findUserByUserName(userName)!= null)) {
-            throw new DuplicateResourceException(USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+    private UserCreationStatus checkAndSaveUser(UserRequest userRequest, User user) {
+        String userName = userRequest.getUserName();
+        String email = userRequest.getEmail();
+        // the existence filter answers most lookups for fresh values without a query
+        if (StringUtils.isNotBlank(userName) && userExistenceFilter.mightContainUserName(userName) && exists(userRepository.findUserByUserName(userName))) {
+            return UserCreationStatus.DUPLICATE_USERNAME;
         }
 
-        else if (StringUtils.isNotBlank(email) && (userRepository.findUserByEmail(email)!= null)) {
-            throw new DuplicateResourceException(EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+        else if (StringUtils.isNotBlank(email) && userExistenceFilter.mightContainEmail(email) && exists(userRepository.findUserByEmail(email))) {
+            return UserCreationStatus.DUPLICATE_EMAIL;
         }
-        User user = mapUserRequestToUser(userRequest);
-        userRepository.save(user);
+        // a concurrent create can still take the values between the check and the save
+        try {
+            userRepository.save(user);
+            return UserCreationStatus.CREATED;
+        } catch (DuplicateKeyException ex) {
+            return toDuplicateStatus(userRequest, ex);
+        }
+    }
+
+    private boolean exists(User user) {
+        if (user == null) {
+            userExistenceFilter.recordFalsePositives(1);
+        }
+        return user != null;
+    }
+
+    private UserCreationStatus toDuplicateStatus(UserRequest userRequest, DuplicateKeyException ex) {
+        DuplicateKeyField field = DuplicateKeyField.fromErrorMessage(ex.getMessage());
+        // A blank field is stored as missing, and missing values collide with each other on the unique index.
+        // That is not a duplicate of what the caller sent, so check whether the other field is the real conflict.
+        if (field == DuplicateKeyField.USER_NAME && StringUtils.isBlank(userRequest.getUserName())) {
+            field = userRepository.findUserByEmail(userRequest.getEmail()) != null ? DuplicateKeyField.EMAIL : null;
+        } else if (field == DuplicateKeyField.EMAIL && StringUtils.isBlank(userRequest.getEmail())) {
+            field = userRepository.findUserByUserName(userRequest.getUserName()) != null ? DuplicateKeyField.USER_NAME : null;
+        }
+        if (field == DuplicateKeyField.USER_NAME) {
+            return UserCreationStatus.DUPLICATE_USERNAME;
+        }
+        if (field == DuplicateKeyField.EMAIL) {
+            return UserCreationStatus.DUPLICATE_EMAIL;
+        }
+        throw ex;
+    }
+
+    public List<UserCreationResult> createUsers(List<UserRequest> userRequests) {
+        Set<String> userNames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (UserRequest userRequest : userRequests) {
+            if (StringUtils.isNotBlank(userRequest.getUserName())) {
+                userNames.add(userRequest.getUserName());
+            }
+            if (StringUtils.isNotBlank(userRequest.getEmail())) {
+                emails.add(userRequest.getEmail());
+            }
+        }
+        // values the existence filter rules out need not be part of the $in queries
+        userNames.removeIf(userName -> !userExistenceFilter.mightContainUserName(userName));
+        emails.removeIf(email -> !userExistenceFilter.mightContainEmail(email));
+        Set<String> takenUserNames = userNames.isEmpty() ? new HashSet<>() : userRepository.findAllByUserNameIn(userNames)
+                .stream().map(User::getUserName).collect(Collectors.toCollection(HashSet::new));
+        Set<String> takenEmails = emails.isEmpty() ? new HashSet<>() : userRepository.findAllByEmailIn(emails)
+                .stream().map(User::getEmail).collect(Collectors.toCollection(HashSet::new));
+        userExistenceFilter.recordFalsePositives(userNames.size() + emails.size() - takenUserNames.size() - takenEmails.size());
+
+        UserCreationResult[] results = new UserCreationResult[userRequests.size()];
+        List<User> users = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < userRequests.size(); i++) {
+            UserRequest userRequest = userRequests.get(i);
+            String userName = userRequest.getUserName();
+            String email = userRequest.getEmail();
+            if (StringUtils.isBlank(userName) && StringUtils.isBlank(email)) {
+                results[i] = rejected(i, userRequest, UserCreationStatus.MISSING_CREDENTIALS, MISSING_CREDENTIALS_EXCEPTION_MESSAGE);
+            } else if (StringUtils.isNotBlank(userName) && takenUserNames.contains(userName)) {
+                results[i] = rejected(i, userRequest, UserCreationStatus.DUPLICATE_USERNAME, USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            } else if (StringUtils.isNotBlank(email) && takenEmails.contains(email)) {
+                results[i] = rejected(i, userRequest, UserCreationStatus.DUPLICATE_EMAIL, EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            } else {
+                // later entries of the same batch must see this one as already taken
+                if (StringUtils.isNotBlank(userName)) {
+                    takenUserNames.add(userName);
+                }
+                if (StringUtils.isNotBlank(email)) {
+                    takenEmails.add(email);
+                }
+                User user = mapUserRequestToUser(userRequest);
+                user.setId(new ObjectId().toHexString());
+                users.add(user);
+                positions.add(i);
+            }
+        }
+
+        // the unique indexes still arbitrate writes that raced with this batch
+        Map<Integer, DuplicateKeyField> conflicts = users.isEmpty() ? Map.of() : userRepository.insertUnordered(users);
+        List<User> created = new ArrayList<>(users.size());
+        for (int j = 0; j < users.size(); j++) {
+            int i = positions.get(j);
+            DuplicateKeyField conflict = conflicts.get(j);
+            if (conflict == DuplicateKeyField.USER_NAME) {
+                results[i] = rejected(i, userRequests.get(i), UserCreationStatus.DUPLICATE_USERNAME, USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            } else if (conflict == DuplicateKeyField.EMAIL) {
+                results[i] = rejected(i, userRequests.get(i), UserCreationStatus.DUPLICATE_EMAIL, EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE);
+            } else if (conflict == DuplicateKeyField.ID) {
+                results[i] = rejected(i, userRequests.get(i), UserCreationStatus.FAILED, DUPLICATE_ID_EXCEPTION_MESSAGE);
+            } else {
+                User user = users.get(j);
+                userResponseCache.invalidate(user.getUserName());
+                created.add(user);
+                results[i] = UserCreationResult.builder()
+                        .index(i)
+                        .id(user.getId())
+                        .userName(user.getUserName())
+                        .email(user.getEmail())
+                        .status(UserCreationStatus.CREATED)
+                        .build();
+            }
+        }
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(new UsersCreatedEvent(created));
+        }
+        return Arrays.asList(results);
+    }
+
+    private UserCreationResult rejected(int index, UserRequest userRequest, UserCreationStatus status, String message) {
+        return UserCreationResult.builder()
+                .index(index)
+                .userName(userRequest.getUserName())
+                .email(userRequest.getEmail())
+                .status(status)
+                .message(message)
+                .build();
     }
 }
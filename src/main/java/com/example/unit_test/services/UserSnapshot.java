@@ -0,0 +1,242 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.utils.UserSnapshotFile;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static com.example.unit_test.repositories.UserRepositoryCustom.USER_RESPONSE_FIELDS;
+
+/**
+ * Answers userName lookups from a {@link UserSnapshotFile} mapped at startup, so a restarted
+ * instance serves known users before its cache has warmed up. Users created since the file was
+ * written are read by id every {@code refresh-interval} and kept in a small overlay, together with
+ * the ones created here. Every {@code write-interval}, and on shutdown, the file is rewritten from
+ * itself and the overlay, which empties the overlay again. Only the first file is read from Mongo.
+ * <p>
+ * Users are never updated or deleted through the service, so a user found here is current; a
+ * userName that is not found still has to be looked up in Mongo.
+ */
+@Slf4j
+@Component
+public class UserSnapshot implements SmartLifecycle, MeterBinder {
+    private static final int REFRESH_PAGE_SIZE = 1_000;
+    private static final List<String> REFRESH_FIELDS = Stream.concat(USER_RESPONSE_FIELDS.stream(), Stream.of("version")).toList();
+
+    private final UserRepository userRepository;
+    private final UserProperties.Snapshot settings;
+    private final Path file;
+    private final Map<String, UserResponse> overlay = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+
+    private volatile UserSnapshotFile current;
+    // the greatest id read so far, users after it are what the next refresh reads
+    private volatile String lastSeenId;
+    private volatile Thread refresher;
+
+    public UserSnapshot(UserRepository userRepository, UserProperties userProperties) {
+        this.userRepository = userRepository;
+        this.settings = userProperties.getSnapshot();
+        this.file = settings.getFile() != null ? Path.of(settings.getFile())
+                : Path.of(System.getProperty("java.io.tmpdir"), "user-snapshot.bin");
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // null when the user is not in the snapshot, which does not mean it does not exist
+    public UserResponse find(String userName) {
+        if (!settings.isEnabled() || userName == null) {
+            return null;
+        }
+        UserResponse user = overlay.get(userName);
+        UserSnapshotFile snapshot = current;
+        if (user == null && snapshot != null) {
+            user = snapshot.find(userName);
+        }
+        if (user != null) {
+            hits.incrementAndGet();
+        }
+        return user;
+    }
+
+    @EventListener
+    public void onUsersCreated(UsersCreatedEvent event) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        for (User user : event.users()) {
+            if (user.getUserName() != null) {
+                overlay.put(user.getUserName(), UserMapper.mapUserToUserResponse(user));
+            }
+        }
+    }
+
+    // mapping the file is cheap, so it happens before the web server takes requests
+    @Override
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        if (Files.exists(file)) {
+            try {
+                current = UserSnapshotFile.open(file);
+                lastSeenId = current.lastId();
+                log.info("Mapped user snapshot {} with {} users taken at {}", file, current.size(), current.takenAt());
+            } catch (IOException ex) {
+                log.warn("Ignoring unreadable user snapshot {}", file, ex);
+            }
+        }
+        refresher = Thread.ofVirtual().name("user-snapshot-refresh").start(this::refreshPeriodically);
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = refresher;
+        if (thread == null) {
+            return;
+        }
+        refresher = null;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null;
+    }
+
+    // stopped after the write-behind queue has flushed, while Mongo is still open
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    /**
+     * Reads the users created after the greatest id seen so far into the overlay. Without a file
+     * there is nothing to refresh, the first {@link #write()} reads the whole collection instead.
+     */
+    public void refresh() {
+        if (current == null) {
+            return;
+        }
+        int read = 0;
+        List<UserResponse> page;
+        do {
+            page = userRepository.findUserResponsesAfter(lastSeenId, REFRESH_PAGE_SIZE, REFRESH_FIELDS);
+            for (UserResponse user : page) {
+                if (user.getUserName() != null) {
+                    overlay.put(user.getUserName(), user);
+                }
+            }
+            if (!page.isEmpty()) {
+                lastSeenId = page.get(page.size() - 1).getId();
+                read += page.size();
+            }
+        } while (page.size() == REFRESH_PAGE_SIZE && !Thread.currentThread().isInterrupted());
+        if (read > 0) {
+            log.debug("Read {} users created since the user snapshot", read);
+        }
+    }
+
+    // false when the file could not be written or another write is under way
+    public boolean write() {
+        if (!settings.isEnabled() || !writeLock.tryLock()) {
+            return false;
+        }
+        try {
+            UserSnapshotFile previous = current;
+            if (previous != null && overlay.isEmpty()) {
+                return true;
+            }
+            UserSnapshotFile written;
+            if (previous == null) {
+                try (Stream<UserResponse> users = userRepository.streamUserResponses()) {
+                    written = UserSnapshotFile.write(file, users.iterator());
+                }
+            } else {
+                List<UserResponse> added = new ArrayList<>(overlay.values());
+                added.removeIf(user -> previous.find(user.getUserName()) != null);
+                added.sort(Comparator.comparing(UserResponse::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+                try (Stream<UserResponse> users = Stream.concat(previous.stream(), added.stream())) {
+                    written = UserSnapshotFile.write(file, users.iterator());
+                }
+            }
+            current = written;
+            if (lastSeenId == null || (written.lastId() != null && written.lastId().compareTo(lastSeenId) > 0)) {
+                lastSeenId = written.lastId();
+            }
+            // what arrived during the write stays until the next one
+            overlay.values().removeIf(user -> written.find(user.getUserName()) != null);
+            log.info("Wrote user snapshot {} with {} users, {} bytes", file, written.size(), written.sizeInBytes());
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not write user snapshot {}", file, ex);
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.snapshot.size", this, snapshot -> snapshot.current == null ? 0 : snapshot.current.size())
+                .register(registry);
+        Gauge.builder("user.snapshot.overlay.size", overlay, Map::size)
+                .register(registry);
+        FunctionCounter.builder("user.snapshot.hits", hits, AtomicLong::get)
+                .register(registry);
+    }
+
+    private void refreshPeriodically() {
+        long refreshInterval = settings.getRefreshInterval().toMillis();
+        long writeInterval = settings.getWriteInterval().toMillis();
+        long nextWrite = current == null ? 0 : System.currentTimeMillis() + writeInterval;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (System.currentTimeMillis() >= nextWrite) {
+                    write();
+                    nextWrite = System.currentTimeMillis() + writeInterval;
+                } else {
+                    refresh();
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not refresh user snapshot", ex);
+            }
+            try {
+                Thread.sleep(refreshInterval);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind path for single user creations. Accepted requests wait in a bounded queue and a
+ * single writer turns them into {@link UserService#createUsers} batches, closing a batch when it
+ * is full or when its first request has waited {@code max-delay}. A request stays
+ * {@code PENDING} under the request id handed out on acceptance until its batch is written.
+ * Outcomes are then kept in the order they were written, for {@code status-ttl} and at most
+ * {@code status-maximum-size} of them, so a burst of creates cannot grow the heap without bound.
+ */
+@Slf4j
+@Component
+public class UserWriteBehindQueue implements SmartLifecycle, MeterBinder {
+    private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final UserService userService;
+    private final UserProperties.Create.Async settings;
+    private final BlockingQueue<Pending> queue;
+    // accepted and not written yet, bounded by the queue and the batch being written
+    private final Map<String, UserCreationResult> pending = new ConcurrentHashMap<>();
+    // written, oldest first; guarded by itself
+    private final LinkedHashMap<String, Outcome> outcomes = new LinkedHashMap<>();
+
+    private volatile boolean accepting;
+    private volatile Thread writer;
+    private Counter rejected;
+
+    public UserWriteBehindQueue(UserService userService, UserProperties userProperties) {
+        this.userService = userService;
+        this.settings = userProperties.getCreate().getAsync();
+        this.queue = new ArrayBlockingQueue<>(settings.isEnabled() ? settings.getQueueCapacity() : 1);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // empty when the queue is full or shutting down; the caller should answer with a retryable error
+    public Optional<UserCreationResult> submit(UserRequest userRequest) {
+        String requestId = new ObjectId().toHexString();
+        UserCreationResult accepted = UserCreationResult.builder()
+                .requestId(requestId)
+                .userName(userRequest.getUserName())
+                .email(userRequest.getEmail())
+                .status(UserCreationStatus.PENDING)
+                .build();
+        pending.put(requestId, accepted);
+        if (!accepting || !queue.offer(new Pending(requestId, userRequest))) {
+            pending.remove(requestId);
+            if (rejected != null) {
+                rejected.increment();
+            }
+            return Optional.empty();
+        }
+        return Optional.of(accepted);
+    }
+
+    public Optional<UserCreationResult> status(String requestId) {
+        // complete() stores the outcome before the request leaves pending, so one of the two has it
+        UserCreationResult accepted = pending.get(requestId);
+        if (accepted != null) {
+            return Optional.of(accepted);
+        }
+        synchronized (outcomes) {
+            expire(System.nanoTime());
+            Outcome outcome = outcomes.get(requestId);
+            return Optional.ofNullable(outcome == null ? null : outcome.result());
+        }
+    }
+
+    long statusCount() {
+        synchronized (outcomes) {
+            expire(System.nanoTime());
+            return pending.size() + outcomes.size();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        accepting = true;
+        writer = Thread.ofPlatform().name("user-write-behind").daemon().start(this::drain);
+    }
+
+    // stops taking requests, then waits until the writer has flushed everything already accepted
+    @Override
+    public void stop() {
+        accepting = false;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        writer = null;
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // a submit that raced with the flag may have landed after the writer exited
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+        log.info("User write-behind queue flushed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    // stopped after the web server, so requests still in flight during a graceful shutdown are accepted and written
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.create.queue.size", queue, BlockingQueue::size)
+                .register(registry);
+        Gauge.builder("user.create.status.size", this, UserWriteBehindQueue::statusCount)
+                .register(registry);
+        rejected = Counter.builder("user.create.queue.rejected")
+                .register(registry);
+    }
+
+    private void drain() {
+        long maxDelay = settings.getMaxDelay().toNanos();
+        List<Pending> batch = new ArrayList<>(settings.getBatchSize());
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_INTERVAL, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay;
+                while (batch.size() < settings.getBatchSize()) {
+                    if (queue.drainTo(batch, settings.getBatchSize() - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !accepting) {
+                        break;
+                    }
+                    // waits in slices so stop() does not have to sit out a long window
+                    Pending next = queue.poll(Math.min(remaining, POLL_INTERVAL), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // the last batch is still written, stop() relies on the queue being empty when the writer exits
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<UserRequest> userRequests = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            userRequests.add(pending.userRequest());
+        }
+        try {
+            List<UserCreationResult> created = userService.createUsers(userRequests);
+            for (int i = 0; i < batch.size(); i++) {
+                UserCreationResult result = created.get(i);
+                result.setIndex(0);
+                result.setRequestId(batch.get(i).requestId());
+                complete(result);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Could not write a batch of {} users", batch.size(), ex);
+            for (Pending failed : batch) {
+                complete(UserCreationResult.builder()
+                        .requestId(failed.requestId())
+                        .userName(failed.userRequest().getUserName())
+                        .email(failed.userRequest().getEmail())
+                        .status(UserCreationStatus.FAILED)
+                        .message(ex.getMessage())
+                        .build());
+            }
+        }
+    }
+
+    private void complete(UserCreationResult result) {
+        long now = System.nanoTime();
+        synchronized (outcomes) {
+            outcomes.put(result.getRequestId(), new Outcome(result, now));
+            expire(now);
+            // the oldest outcomes make room, whether or not anyone asked for them
+            Iterator<Outcome> oldest = outcomes.values().iterator();
+            while (outcomes.size() > settings.getStatusMaximumSize()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        pending.remove(result.getRequestId());
+    }
+
+    // outcomes are in write order, so the expired ones are at the head
+    private void expire(long now) {
+        long ttl = settings.getStatusTtl().toNanos();
+        Iterator<Outcome> oldest = outcomes.values().iterator();
+        while (oldest.hasNext() && now - oldest.next().writtenAt() >= ttl) {
+            oldest.remove();
+        }
+    }
+
+    private record Pending(String requestId, UserRequest userRequest) {
+    }
+
+    private record Outcome(UserCreationResult result, long writtenAt) {
+    }
+}
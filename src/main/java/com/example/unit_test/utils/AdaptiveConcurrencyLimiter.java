@@ -0,0 +1,100 @@
+package com.example.unit_test.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of requests in flight and moves the cap with observed latency, in the style of
+ * a gradient limiter. A slow moving average of the latency stands for the unloaded round trip and a
+ * fast one for the current one. While the current latency stays within {@code TOLERANCE} of the
+ * baseline the limit grows by about its square root per sample; once it rises above that the limit
+ * shrinks in proportion, by at most half. Every change is smoothed so a single slow query barely
+ * moves it.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ReentrantLock sampleLock = new ReentrantLock();
+
+    private volatile int limit;
+    // guarded by sampleLock
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min <= initial <= max, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    public boolean tryAcquire() {
+        for (int current = inFlight.get(); current < limit; current = inFlight.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void onSample(long rttNanos) {
+        // a sample that loses the race is dropped; the next one carries the same information
+        if (rttNanos <= 0 || !sampleLock.tryLock()) {
+            return;
+        }
+        try {
+            if (longRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                return;
+            }
+            shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+            longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+            // once latency has recovered to under half the baseline, the baseline still carries the slowdown;
+            // it decays faster so that an inflated baseline does not hide the next rise in latency
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            // an idle limiter learns nothing about how far it could grow
+            if (target > estimatedLimit && inFlight.get() < estimatedLimit / 2) {
+                return;
+            }
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+            limit = (int) estimatedLimit;
+        } finally {
+            sampleLock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
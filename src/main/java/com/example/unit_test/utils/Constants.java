@@ -4,4 +4,7 @@ public class Constants {
     public static String MISSING_CREDENTIALS_EXCEPTION_MESSAGE = "Both userName and email cannot be empty";
     public static String EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE = "User with the provided userName already exists";
     public static String USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE = "User with the provided email already exists";
+    public static String DUPLICATE_ID_EXCEPTION_MESSAGE = "A user with the generated id already exists, retry";
+    public static String CREATE_QUEUE_FULL_EXCEPTION_MESSAGE = "Too many pending user creations, retry later";
+    public static String OVERLOADED_EXCEPTION_MESSAGE = "Too many requests in flight, retry later";
 }
@@ -0,0 +1,16 @@
+package com.example.unit_test.utils;
+
+public class CreateQueueFullException extends RuntimeException {
+    public CreateQueueFullException(String s) {
+        super(s);
+    }
+
+    private CreateQueueFullException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
+
+    // for expected outcomes thrown on hot paths, where filling in a stack trace is most of the cost
+    public static CreateQueueFullException withoutStackTrace(String s) {
+        return new CreateQueueFullException(s, false);
+    }
+}
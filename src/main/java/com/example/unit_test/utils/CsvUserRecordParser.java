@@ -0,0 +1,119 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads comma separated lines whose columns are named by a header line, such as
+ * {@code userName,email,firstName,lastName,phoneNumber} in any order. Fields may be quoted, with
+ * {@code ""} for a quote inside, but may not span lines. Empty fields and unknown columns are
+ * ignored; only the known columns are turned into Strings.
+ */
+public class CsvUserRecordParser implements UserRecordParser {
+    private final List<BiConsumer<UserRequest, String>> columns;
+    private byte[] field = new byte[256];
+
+    private CsvUserRecordParser(List<BiConsumer<UserRequest, String>> columns) {
+        this.columns = columns;
+    }
+
+    public static CsvUserRecordParser fromHeader(byte[] line, int length) {
+        List<String> names = new ArrayList<>();
+        new CsvUserRecordParser(List.of()).split(line, length, (index, value) -> names.add(value == null ? "" : value.trim()));
+        List<BiConsumer<UserRequest, String>> columns = new ArrayList<>();
+        for (String name : names) {
+            columns.add(switch (name) {
+                case "userName" -> UserRequest::setUserName;
+                case "email" -> UserRequest::setEmail;
+                case "firstName" -> UserRequest::setFirstName;
+                case "lastName" -> UserRequest::setLastName;
+                case "phoneNumber" -> UserRequest::setPhoneNumber;
+                default -> null;
+            });
+        }
+        if (!names.contains("userName") && !names.contains("email")) {
+            throw new IllegalArgumentException("The header names neither a userName nor an email column");
+        }
+        return new CsvUserRecordParser(columns);
+    }
+
+    @Override
+    public UserRequest parse(byte[] line, int length) {
+        UserRequest userRequest = new UserRequest();
+        int count = split(line, length, (index, value) -> {
+            BiConsumer<UserRequest, String> column = index < columns.size() ? columns.get(index) : null;
+            if (column != null && value != null) {
+                column.accept(userRequest, value);
+            }
+        });
+        if (count != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " fields, got " + count);
+        }
+        return userRequest;
+    }
+
+    // calls back with each field, null when empty; known columns are decoded only when wanted
+    private int split(byte[] line, int length, FieldConsumer consumer) {
+        int index = 0;
+        int i = 0;
+        while (true) {
+            int fieldLength = 0;
+            if (i < length && line[i] == '"') {
+                i++;
+                while (true) {
+                    if (i == length) {
+                        throw new IllegalArgumentException("Unterminated quoted field " + (index + 1));
+                    }
+                    byte b = line[i++];
+                    if (b == '"') {
+                        if (i < length && line[i] == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    fieldLength = put(fieldLength, b);
+                }
+                if (i < length && line[i] != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field " + (index + 1));
+                }
+            } else {
+                while (i < length && line[i] != ',') {
+                    fieldLength = put(fieldLength, line[i++]);
+                }
+            }
+            if (wanted(index)) {
+                consumer.accept(index, fieldLength == 0 ? null : new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+            }
+            index++;
+            if (i >= length) {
+                return index;
+            }
+            i++;
+        }
+    }
+
+    // the header has no columns yet and wants every field
+    private boolean wanted(int index) {
+        return columns.isEmpty() || index < columns.size() && columns.get(index) != null;
+    }
+
+    private int put(int position, byte b) {
+        if (position == field.length) {
+            byte[] grown = new byte[field.length * 2];
+            System.arraycopy(field, 0, grown, 0, position);
+            field = grown;
+        }
+        field[position] = b;
+        return position + 1;
+    }
+
+    @FunctionalInterface
+    private interface FieldConsumer {
+        void accept(int index, String value);
+    }
+}
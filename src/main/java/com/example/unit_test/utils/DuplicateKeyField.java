@@ -0,0 +1,37 @@
+package com.example.unit_test.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public enum DuplicateKeyField {
+    USER_NAME("userName"),
+    EMAIL("email"),
+    // the _id_ index: a clash of generated ids, not a duplicate of anything the caller sent
+    ID("_id");
+
+    // E11000 duplicate key error collection: springboot.users index: email dup key: { email: "..." }
+    private static final Pattern INDEX_NAME = Pattern.compile("index: (\\S+)");
+
+    private final String indexName;
+
+    DuplicateKeyField(String indexName) {
+        this.indexName = indexName;
+    }
+
+    public static DuplicateKeyField fromErrorMessage(String message) {
+        if (message == null) {
+            return null;
+        }
+        Matcher matcher = INDEX_NAME.matcher(message);
+        if (!matcher.find()) {
+            return null;
+        }
+        String index = matcher.group(1);
+        for (DuplicateKeyField field : values()) {
+            if (index.equals(field.indexName) || index.startsWith(field.indexName + "_")) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -4,4 +4,13 @@ public class DuplicateResourceException extends RuntimeException {
     public DuplicateResourceException(String s) {
         super(s);
     }
+
+    private DuplicateResourceException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
+
+    // for expected outcomes thrown on hot paths, where filling in a stack trace is most of the cost
+    public static DuplicateResourceException withoutStackTrace(String s) {
+        return new DuplicateResourceException(s, false);
+    }
 }
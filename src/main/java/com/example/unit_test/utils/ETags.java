@@ -0,0 +1,36 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserResponse;
+
+/**
+ * Strong entity tags for users, built from the document id and its version. The CBOR
+ * representation gets its own tag since its bytes differ from the JSON one.
+ */
+public final class ETags {
+    private static final String CBOR_SUFFIX = "+cbor";
+
+    private ETags() {
+    }
+
+    public static String of(UserResponse user, boolean cbor) {
+        return "\"" + user.getId() + '-' + (user.getVersion() == null ? 0 : user.getVersion())
+                + (cbor ? CBOR_SUFFIX : "") + "\"";
+    }
+
+    // If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
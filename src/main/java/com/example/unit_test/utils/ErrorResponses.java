@@ -0,0 +1,168 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.ErrorResponse;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.unit_test.utils.Constants.*;
+
+/**
+ * Error bodies for the expected rejections, encoded once per wire format. The messages from
+ * {@link Constants} are kept as ready byte payloads and the JSON not-found body only has the
+ * userName spliced in, so an error costs about as much to write as a success. CBOR is used when
+ * the Accept header prefers it, JSON otherwise.
+ */
+@Component
+public class ErrorResponses {
+    private static final String USER_NAME_PLACEHOLDER = "\u0000";
+    private static final List<String> CONSTANT_MESSAGES = List.of(MISSING_CREDENTIALS_EXCEPTION_MESSAGE,
+            EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE, USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE,
+            CREATE_QUEUE_FULL_EXCEPTION_MESSAGE, OVERLOADED_EXCEPTION_MESSAGE);
+
+    private final Encoding json;
+    private final Encoding cbor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final byte[] notFoundPrefix;
+    private final byte[] notFoundSuffix;
+
+    public ErrorResponses(ObjectMapper objectMapper, MappingJackson2CborHttpMessageConverter cborHttpMessageConverter,
+                          MeterRegistry meterRegistry) {
+        this.json = new Encoding(MediaType.APPLICATION_JSON, objectMapper);
+        this.cbor = new Encoding(MediaType.APPLICATION_CBOR, cborHttpMessageConverter.getObjectMapper());
+        this.meterRegistry = meterRegistry;
+        String notFound = new String(json.encode(notFoundMessage(USER_NAME_PLACEHOLDER)), StandardCharsets.UTF_8);
+        String placeholder = new String(JsonStringEncoder.getInstance().quoteAsString(USER_NAME_PLACEHOLDER));
+        int at = notFound.indexOf(placeholder);
+        notFoundPrefix = notFound.substring(0, at).getBytes(StandardCharsets.UTF_8);
+        notFoundSuffix = notFound.substring(at + placeholder.length()).getBytes(StandardCharsets.UTF_8);
+        counter(UserNotFoundException.class, HttpStatus.NOT_FOUND);
+        counter(DuplicateResourceException.class, HttpStatus.CONFLICT);
+        counter(MissingCredentialsException.class, HttpStatus.BAD_REQUEST);
+    }
+
+    public static String notFoundMessage(String userName) {
+        return "User with username " + userName + " not found";
+    }
+
+    public ResponseEntity<byte[]> userNotFound(String userName, String accept) {
+        counter(UserNotFoundException.class, HttpStatus.NOT_FOUND).increment();
+        Encoding encoding = encodingFor(accept);
+        if (encoding == cbor) {
+            // CBOR strings carry their length up front, so there is no fixed prefix to splice into
+            return body(HttpStatus.NOT_FOUND, cbor, cbor.encode(notFoundMessage(userName)));
+        }
+        byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(userName);
+        byte[] body = new byte[notFoundPrefix.length + quoted.length + notFoundSuffix.length];
+        System.arraycopy(notFoundPrefix, 0, body, 0, notFoundPrefix.length);
+        System.arraycopy(quoted, 0, body, notFoundPrefix.length, quoted.length);
+        System.arraycopy(notFoundSuffix, 0, body, notFoundPrefix.length + quoted.length, notFoundSuffix.length);
+        return body(HttpStatus.NOT_FOUND, json, body);
+    }
+
+    public ResponseEntity<byte[]> rejected(UserCreationStatus status, String accept) {
+        return switch (status) {
+            case MISSING_CREDENTIALS -> error(MissingCredentialsException.class, HttpStatus.BAD_REQUEST, MISSING_CREDENTIALS_EXCEPTION_MESSAGE, accept);
+            case DUPLICATE_USERNAME -> error(DuplicateResourceException.class, HttpStatus.CONFLICT, USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE, accept);
+            case DUPLICATE_EMAIL -> error(DuplicateResourceException.class, HttpStatus.CONFLICT, EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE, accept);
+            case CREATED, PENDING, FAILED -> throw new IllegalArgumentException("Not a rejection: " + status);
+        };
+    }
+
+    public ResponseEntity<byte[]> createQueueFull(String accept) {
+        return error(CreateQueueFullException.class, HttpStatus.SERVICE_UNAVAILABLE, CREATE_QUEUE_FULL_EXCEPTION_MESSAGE, accept);
+    }
+
+    public ResponseEntity<byte[]> of(RuntimeException ex, HttpStatus status, String accept) {
+        return error(ex.getClass(), status, ex.getMessage(), accept);
+    }
+
+    private ResponseEntity<byte[]> error(Class<? extends RuntimeException> exception, HttpStatus status, String message, String accept) {
+        counter(exception, status).increment();
+        Encoding encoding = encodingFor(accept);
+        // messages outside Constants are encoded per call and not kept
+        byte[] body = encoding.bodies.get(message);
+        return body(status, encoding, body != null ? body : encoding.encode(message));
+    }
+
+    // CBOR when it is asked for with a higher quality than anything JSON-compatible
+    public static boolean prefersCbor(String accept) {
+        if (accept == null || !accept.contains("cbor")) {
+            return false;
+        }
+        try {
+            boolean cbor = false;
+            double best = -1;
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                boolean isCbor = MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType);
+                if ((isCbor || mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) && mediaType.getQualityValue() > best) {
+                    cbor = isCbor;
+                    best = mediaType.getQualityValue();
+                }
+            }
+            return cbor;
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+    }
+
+    private Encoding encodingFor(String accept) {
+        return prefersCbor(accept) ? cbor : json;
+    }
+
+    private Counter counter(Class<? extends RuntimeException> exception, HttpStatusCode status) {
+        return counters.computeIfAbsent(exception.getSimpleName() + ':' + status.value(), key ->
+                meterRegistry.counter("user.api.errors",
+                        "exception", exception.getSimpleName(),
+                        "status", String.valueOf(status.value())));
+    }
+
+    private static ResponseEntity<byte[]> body(HttpStatus status, Encoding encoding, byte[] body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status).contentType(encoding.mediaType);
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.body(body);
+    }
+
+    private static final class Encoding {
+        private final MediaType mediaType;
+        private final ObjectMapper mapper;
+        private final Map<String, byte[]> bodies = new HashMap<>();
+
+        Encoding(MediaType mediaType, ObjectMapper mapper) {
+            this.mediaType = mediaType;
+            this.mapper = mapper;
+            for (String message : CONSTANT_MESSAGES) {
+                bodies.put(message, encode(message));
+            }
+        }
+
+        byte[] encode(String message) {
+            try {
+                return mapper.writeValueAsBytes(new ErrorResponse(message));
+            } catch (JsonProcessingException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.unit_test.utils;
 
-import com.example.unit_test.dto.ErrorResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -9,31 +12,54 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+// Spring MVC does not resolve @RequestHeader on exception handlers, so Accept is read from the request
 @ControllerAdvice
+@Profile("!reactive")
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
+    private final ErrorResponses errorResponses;
 
     @ExceptionHandler(UserNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ResponseBody
-    public ResponseEntity<ErrorResponse> handleUserNotFoundException(UserNotFoundException ex) {
-        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    public ResponseEntity<byte[]> handleUserNotFoundException(UserNotFoundException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.NOT_FOUND, request.getHeader(HttpHeaders.ACCEPT));
     }
 
     @ExceptionHandler(DuplicateResourceException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     @ResponseBody
-    public ResponseEntity<ErrorResponse> handleDuplicateResourceException(DuplicateResourceException ex) {
-        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    public ResponseEntity<byte[]> handleDuplicateResourceException(DuplicateResourceException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.CONFLICT, request.getHeader(HttpHeaders.ACCEPT));
     }
 
     @ExceptionHandler(MissingCredentialsException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ResponseBody
-    public ResponseEntity<ErrorResponse> handleMissingCredentialsException(MissingCredentialsException ex) {
-        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<byte[]> handleMissingCredentialsException(MissingCredentialsException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.BAD_REQUEST, request.getHeader(HttpHeaders.ACCEPT));
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(CreateQueueFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleCreateQueueFullException(CreateQueueFullException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.SERVICE_UNAVAILABLE, request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    @ExceptionHandler(OverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleOverloadedException(OverloadedException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.SERVICE_UNAVAILABLE, request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleInvalidRequestException(InvalidRequestException ex, HttpServletRequest request) {
+        return errorResponses.of(ex, HttpStatus.BAD_REQUEST, request.getHeader(HttpHeaders.ACCEPT));
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.example.unit_test.utils;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.unit_test.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads an input stream line by line into one reused byte buffer, so a file of any size is read
+ * without a String or array per line. Lines end with {@code \n} or {@code \r\n}. A line longer than
+ * {@code maxLength} is cut off there and flagged by {@link #isTooLong()}.
+ */
+public class LineReader {
+    private final InputStream in;
+    private final int maxLength;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    private byte[] line = new byte[256];
+    private int length;
+    private boolean tooLong;
+    private long lineNumber;
+    private long bytesRead;
+
+    public LineReader(InputStream in, int maxLength) {
+        this.in = in;
+        this.maxLength = maxLength;
+    }
+
+    public boolean next() throws IOException {
+        length = 0;
+        tooLong = false;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = Math.max(in.read(buffer, 0, buffer.length), 0);
+                position = 0;
+                if (limit == 0) {
+                    if (!read) {
+                        return false;
+                    }
+                    break;
+                }
+                bytesRead += limit;
+            }
+            read = true;
+            byte b = buffer[position++];
+            if (b == '\n') {
+                break;
+            }
+            append(b);
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        lineNumber++;
+        return true;
+    }
+
+    // valid up to length() until the next call to next()
+    public byte[] line() {
+        return line;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isTooLong() {
+        return tooLong;
+    }
+
+    public boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (line[i] != ' ' && line[i] != '\t') {
+                return false;
+            }
+        }
+        return !tooLong;
+    }
+
+    // 1-based number of the current line
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    private void append(byte b) {
+        if (length == maxLength) {
+            tooLong = true;
+            return;
+        }
+        if (length == line.length) {
+            byte[] grown = new byte[Math.min(line.length * 2, maxLength)];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+        }
+        line[length++] = b;
+    }
+}
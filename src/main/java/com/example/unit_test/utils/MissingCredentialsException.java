@@ -4,4 +4,13 @@ public class MissingCredentialsException extends RuntimeException {
     public MissingCredentialsException(String s) {
         super(s);
     }
+
+    private MissingCredentialsException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
+
+    // for expected outcomes thrown on hot paths, where filling in a stack trace is most of the cost
+    public static MissingCredentialsException withoutStackTrace(String s) {
+        return new MissingCredentialsException(s, false);
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads one JSON object per line with the streaming parser, straight into a {@link UserRequest},
+ * without building a tree or going through data binding. Unknown fields are skipped.
+ */
+public class NdjsonUserRecordParser implements UserRecordParser {
+    private final JsonFactory jsonFactory;
+
+    public NdjsonUserRecordParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public UserRequest parse(byte[] line, int length) {
+        try (JsonParser parser = jsonFactory.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            UserRequest userRequest = new UserRequest();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "userName" -> userRequest.setUserName(text(parser, field, value));
+                    case "email" -> userRequest.setEmail(text(parser, field, value));
+                    case "firstName" -> userRequest.setFirstName(text(parser, field, value));
+                    case "lastName" -> userRequest.setLastName(text(parser, field, value));
+                    case "phoneNumber" -> userRequest.setPhoneNumber(text(parser, field, value));
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+            return userRequest;
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException(ex.getOriginalMessage());
+        } catch (IOException ex) {
+            // parsing a byte array does no I/O
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String text(JsonParser parser, String field, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        return parser.getText();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.unit_test.utils;
+
+public class OverloadedException extends RuntimeException {
+    public OverloadedException(String s) {
+        super(s);
+    }
+
+    private OverloadedException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
+
+    // for expected outcomes thrown on hot paths, where filling in a stack trace is most of the cost
+    public static OverloadedException withoutStackTrace(String s) {
+        return new OverloadedException(s, false);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.unit_test.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sorted set of strings answering "first N values starting with a prefix". Most values live in a
+ * sorted array, which costs one reference per value and is searched with a binary search. Values
+ * added later go to a small concurrent skip list that is folded into the array once it grows past
+ * a fraction of it. The array and the skip list are published together as one {@link Snapshot},
+ * so a read sees either the state before a merge or the one after it, never the array of one and
+ * the skip list of the other. Reads never lock; writes take a lock, which creates can afford.
+ */
+public class PrefixIndex {
+    private static final int MIN_MERGE_THRESHOLD = 1_024;
+
+    private volatile Snapshot snapshot;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public PrefixIndex() {
+        this.snapshot = new Snapshot(new String[0], new ConcurrentSkipListSet<>());
+    }
+
+    // values need not be sorted or distinct
+    public PrefixIndex(Collection<String> values) {
+        this.snapshot = new Snapshot(values.stream().sorted().distinct().toArray(String[]::new), new ConcurrentSkipListSet<>());
+    }
+
+    public void add(String value) {
+        if (value == null || snapshot.contains(value)) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Snapshot current = snapshot;
+            // a merge may have moved it into the array since the check above
+            if (Arrays.binarySearch(current.base, value) >= 0) {
+                return;
+            }
+            current.delta.add(value);
+            if (current.delta.size() > Math.max(MIN_MERGE_THRESHOLD, current.base.length / 16)) {
+                snapshot = merge(current);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public List<String> startingWith(String prefix, int limit) {
+        Snapshot current = snapshot;
+        String[] values = current.base;
+        List<String> matches = new ArrayList<>(Math.min(limit, 16));
+        int i = lowerBound(values, prefix);
+        Iterator<String> added = current.delta.tailSet(prefix, true).iterator();
+        String next = nextMatch(added, prefix);
+        // merge the two sorted runs; a value is never in both
+        while (matches.size() < limit) {
+            String fromBase = i < values.length && values[i].startsWith(prefix) ? values[i] : null;
+            if (fromBase == null && next == null) {
+                break;
+            }
+            int order = fromBase == null ? 1 : next == null ? -1 : fromBase.compareTo(next);
+            if (order <= 0) {
+                matches.add(fromBase);
+                i++;
+                if (order == 0) {
+                    next = nextMatch(added, prefix);
+                }
+            } else {
+                matches.add(next);
+                next = nextMatch(added, prefix);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current.base.length + current.delta.size();
+    }
+
+    // the skip list only changes under the write lock, so the copy is complete
+    private static Snapshot merge(Snapshot current) {
+        List<String> added = new ArrayList<>(current.delta);
+        String[] values = current.base;
+        String[] merged = new String[values.length + added.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < values.length || j < added.size()) {
+            if (j == added.size() || (i < values.length && values[i].compareTo(added.get(j)) <= 0)) {
+                if (j < added.size() && values[i].equals(added.get(j))) {
+                    j++;
+                }
+                merged[k++] = values[i++];
+            } else {
+                merged[k++] = added.get(j++);
+            }
+        }
+        return new Snapshot(k == merged.length ? merged : Arrays.copyOf(merged, k), new ConcurrentSkipListSet<>());
+    }
+
+    private static int lowerBound(String[] values, String key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String nextMatch(Iterator<String> iterator, String prefix) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        String value = iterator.next();
+        return value.startsWith(prefix) ? value : null;
+    }
+
+    // the array is never written after publication; the skip list only grows until the next merge replaces it
+    private record Snapshot(String[] base, NavigableSet<String> delta) {
+        boolean contains(String value) {
+            return Arrays.binarySearch(base, value) >= 0 || delta.contains(value);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.unit_test.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// the WebFlux counterpart of GlobalExceptionHandler, for the errors ReactiveUserService signals
+@ControllerAdvice
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveExceptionHandler {
+    private final ErrorResponses errorResponses;
+
+    @ExceptionHandler(UserNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleUserNotFoundException(UserNotFoundException ex, ServerHttpRequest request) {
+        return errorResponses.of(ex, HttpStatus.NOT_FOUND, request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+    }
+
+    @ExceptionHandler(DuplicateResourceException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleDuplicateResourceException(DuplicateResourceException ex, ServerHttpRequest request) {
+        return errorResponses.of(ex, HttpStatus.CONFLICT, request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+    }
+
+    @ExceptionHandler(MissingCredentialsException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleMissingCredentialsException(MissingCredentialsException ex, ServerHttpRequest request) {
+        return errorResponses.of(ex, HttpStatus.BAD_REQUEST, request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleInvalidRequestException(InvalidRequestException ex, ServerHttpRequest request) {
+        return errorResponses.of(ex, HttpStatus.BAD_REQUEST, request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+    }
+}
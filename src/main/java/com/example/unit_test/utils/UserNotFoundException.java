@@ -4,4 +4,13 @@ public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String s) {
         super(s);
     }
+
+    private UserNotFoundException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
+
+    // for expected outcomes thrown on hot paths, where filling in a stack trace is most of the cost
+    public static UserNotFoundException withoutStackTrace(String s) {
+        return new UserNotFoundException(s, false);
+    }
 }
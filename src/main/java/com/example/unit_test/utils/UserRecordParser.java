@@ -0,0 +1,11 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserRequest;
+
+/**
+ * Turns one line of an import file into a {@link UserRequest}. Throws
+ * {@link IllegalArgumentException} for a line that cannot be read as a user.
+ */
+public interface UserRecordParser {
+    UserRequest parse(byte[] line, int length);
+}
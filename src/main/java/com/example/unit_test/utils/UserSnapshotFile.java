@@ -0,0 +1,306 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserResponse;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only map of userName to {@link UserResponse} in a memory-mapped file, so a lookup touches
+ * the page cache instead of the heap. The file is a fixed header, the records one after another
+ * and an open-addressing table of {@code (hash, record offset)} slots at most half full:
+ * <pre>
+ * header  magic, format, count, capacity, table offset, taken at, last id
+ * record  userName, id, email, firstName, lastName, phoneNumber: u16 length (0xFFFF for null) + UTF-8
+ *         version: i64 (Long.MIN_VALUE for null)
+ * slot    i32 FNV-1a hash of the userName bytes, i32 record offset (0 for an empty slot)
+ * </pre>
+ * A single mapping is limited to 2 GB, about ten million users of typical size.
+ */
+public final class UserSnapshotFile {
+    private static final int MAGIC = 0x55534E50;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int MAX_LAST_ID_LENGTH = HEADER_SIZE - 34;
+    private static final int SLOT_SIZE = 8;
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final long NULL_VERSION = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int capacity;
+    private final int tableOffset;
+    private final Instant takenAt;
+    private final String lastId;
+
+    private UserSnapshotFile(MappedByteBuffer buffer, int count, int capacity, int tableOffset, Instant takenAt, String lastId) {
+        this.buffer = buffer;
+        this.count = count;
+        this.capacity = capacity;
+        this.tableOffset = tableOffset;
+        this.takenAt = takenAt;
+        this.lastId = lastId;
+    }
+
+    public static UserSnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a user snapshot: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int count = buffer.getInt(8);
+            int capacity = buffer.getInt(12);
+            long tableOffset = buffer.getLong(16);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT || Integer.bitCount(capacity) != 1
+                    || tableOffset < HEADER_SIZE || tableOffset + (long) capacity * SLOT_SIZE != size) {
+                throw new IOException("Not a user snapshot: " + file);
+            }
+            return new UserSnapshotFile(buffer, count, capacity, (int) tableOffset, Instant.ofEpochMilli(buffer.getLong(24)), readString(buffer, 32));
+        }
+    }
+
+    /**
+     * Writes {@code users} to a temporary file next to {@code target} and moves it into place, so
+     * a reader never sees a partial file. Users without a userName are left out. Only the table is
+     * built in memory, and it is mapped from the file as well.
+     */
+    public static UserSnapshotFile write(Path target, Iterator<UserResponse> users) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            int count = 0;
+            long end = HEADER_SIZE;
+            String lastId = null;
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            DataOutputStream recordOut = new DataOutputStream(record);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                out.write(new byte[HEADER_SIZE]);
+                while (users.hasNext()) {
+                    UserResponse user = users.next();
+                    record.reset();
+                    if (user.getUserName() == null || !encode(user, recordOut)) {
+                        continue;
+                    }
+                    record.writeTo(out);
+                    end += record.size();
+                    count++;
+                    if (user.getId() != null && (lastId == null || user.getId().compareTo(lastId) > 0)) {
+                        lastId = user.getId();
+                    }
+                }
+            }
+            int capacity = Integer.highestOneBit(Math.max(8, count) * 2 - 1) << 1;
+            long size = end + (long) capacity * SLOT_SIZE;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("A user snapshot of " + count + " users does not fit in 2 GB");
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                for (int offset = HEADER_SIZE; offset < end; offset = skipRecord(buffer, offset)) {
+                    int hash = hash(buffer, offset);
+                    int slot = slotOf(hash, capacity);
+                    while (buffer.getInt((int) end + slot * SLOT_SIZE + 4) != 0) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    buffer.putInt((int) end + slot * SLOT_SIZE, hash);
+                    buffer.putInt((int) end + slot * SLOT_SIZE + 4, offset);
+                }
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT);
+                buffer.putInt(8, count);
+                buffer.putInt(12, capacity);
+                buffer.putLong(16, end);
+                buffer.putLong(24, System.currentTimeMillis());
+                byte[] id = lastId == null ? null : lastId.getBytes(StandardCharsets.UTF_8);
+                if (id == null || id.length > MAX_LAST_ID_LENGTH) {
+                    buffer.putShort(32, (short) NULL_LENGTH);
+                } else {
+                    buffer.putShort(32, (short) id.length);
+                    buffer.put(34, id);
+                }
+                buffer.force();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return open(target);
+    }
+
+    // null when no user has that userName
+    public UserResponse find(String userName) {
+        if (userName == null) {
+            return null;
+        }
+        byte[] key = userName.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        for (int slot = slotOf(hash, capacity); ; slot = (slot + 1) & (capacity - 1)) {
+            int offset = buffer.getInt(tableOffset + slot * SLOT_SIZE + 4);
+            if (offset == 0) {
+                return null;
+            }
+            if (buffer.getInt(tableOffset + slot * SLOT_SIZE) == hash && keyEquals(offset, key)) {
+                return decode(offset);
+            }
+        }
+    }
+
+    // every user, in the order they were written
+    public Stream<UserResponse> stream() {
+        Iterator<UserResponse> records = new Iterator<>() {
+            private int offset = HEADER_SIZE;
+
+            @Override
+            public boolean hasNext() {
+                return offset < tableOffset;
+            }
+
+            @Override
+            public UserResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                UserResponse user = decode(offset);
+                offset = skipRecord(buffer, offset);
+                return user;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(records, count, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    public Instant takenAt() {
+        return takenAt;
+    }
+
+    // the greatest id in the file, where a refresh picks up newer users
+    public String lastId() {
+        return lastId;
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        if ((buffer.getShort(offset) & NULL_LENGTH) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private UserResponse decode(int offset) {
+        String userName = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        String id = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        String email = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        String firstName = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        String lastName = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        String phoneNumber = readString(buffer, offset);
+        offset = skipString(buffer, offset);
+        long version = buffer.getLong(offset);
+        return UserResponse.builder()
+                .id(id)
+                .userName(userName)
+                .email(email)
+                .firstName(firstName)
+                .lastName(lastName)
+                .phoneNumber(phoneNumber)
+                .version(version == NULL_VERSION ? null : version)
+                .build();
+    }
+
+    // false when a field is too long for its length prefix
+    private static boolean encode(UserResponse user, DataOutputStream out) throws IOException {
+        for (String field : new String[]{user.getUserName(), user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getPhoneNumber()}) {
+            if (field == null) {
+                out.writeShort(NULL_LENGTH);
+                continue;
+            }
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= NULL_LENGTH) {
+                return false;
+            }
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+        out.writeLong(user.getVersion() == null ? NULL_VERSION : user.getVersion());
+        return true;
+    }
+
+    private static String readString(MappedByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & NULL_LENGTH;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int skipString(MappedByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & NULL_LENGTH;
+        return offset + 2 + (length == NULL_LENGTH ? 0 : length);
+    }
+
+    private static int skipRecord(MappedByteBuffer buffer, int offset) {
+        for (int i = 0; i < 6; i++) {
+            offset = skipString(buffer, offset);
+        }
+        return offset + Long.BYTES;
+    }
+
+    // the userName is the first field of a record
+    private static int hash(MappedByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & NULL_LENGTH;
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (buffer.get(offset + 2 + i) & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0x811C9DC5;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int slotOf(int hash, int capacity) {
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+}
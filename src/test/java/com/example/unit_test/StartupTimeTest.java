@@ -0,0 +1,126 @@
+package com.example.unit_test;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cold start of a fresh JVM, measured until the first request succeeds. Only runs with
+ * {@code -Pstartup}. The budget is {@code -Dstartup.budget} (default 30s); extra JVM options such
+ * as a CDS archive can be passed with {@code -Dstartup.jvm-args}.
+ */
+@Tag("startup")
+class StartupTimeTest {
+    private static final Duration BUDGET = Duration.parse("PT" + System.getProperty("startup.budget", "30s"));
+
+    @Test
+    @DisplayName("The first request succeeds within the startup budget")
+    void firstRequestWithinBudget() throws Exception {
+        try (Application application = Application.start("--spring.profiles.active=in-memory")) {
+            Duration elapsed = application.awaitFirstRequest();
+            assertTrue(elapsed.compareTo(BUDGET) <= 0, "Took " + elapsed.toMillis() + " ms, budget " + BUDGET.toMillis() + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("With deferred indexes Mongo starts within the budget and the unique indexes follow")
+    void deferredIndexesWithinBudget() throws Exception {
+        try (MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.4.2")) {
+            mongoDBContainer.start();
+            String uri = mongoDBContainer.getReplicaSetUrl();
+            try (Application application = Application.start("--spring.data.mongodb.uri=" + uri, "--user.indexes.deferred=true");
+                 MongoClient mongoClient = MongoClients.create(uri)) {
+                Duration elapsed = application.awaitFirstRequest();
+                assertTrue(elapsed.compareTo(BUDGET) <= 0, "Took " + elapsed.toMillis() + " ms, budget " + BUDGET.toMillis() + " ms");
+
+                // created on a background thread once the application is ready
+                long deadline = System.nanoTime() + BUDGET.toNanos();
+                while (!application.logContains("Created deferred user indexes") && System.nanoTime() < deadline) {
+                    assertFalse(application.logContains("Could not create deferred user indexes"), "See " + application.log());
+                    Thread.sleep(100);
+                }
+                assertTrue(application.logContains("Created deferred user indexes"), "See " + application.log());
+                Set<String> uniqueKeys = mongoClient.getDatabase(new ConnectionString(uri).getDatabase())
+                        .getCollection("users").listIndexes().into(new ArrayList<>()).stream()
+                        .filter(index -> index.getBoolean("unique", false))
+                        .flatMap(index -> index.get("key", Document.class).keySet().stream())
+                        .collect(Collectors.toSet());
+                assertEquals(Set.of("userName", "email"), uniqueKeys);
+            }
+        }
+    }
+
+    // the application in its own JVM on a free port, stopped on close
+    private record Application(Process process, int port, File log, long start) implements AutoCloseable {
+        static Application start(String... arguments) throws IOException {
+            int port = freePort();
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            String jvmArgs = System.getProperty("startup.jvm-args", "");
+            if (!jvmArgs.isBlank()) {
+                command.addAll(List.of(jvmArgs.trim().split("\\s+")));
+            }
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), UnitTestApplication.class.getName(),
+                    "--server.port=" + port));
+            command.addAll(List.of(arguments));
+            File log = Files.createTempFile("startup", ".log").toFile();
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+            return new Application(process, port, log, start);
+        }
+
+        Duration awaitFirstRequest() throws Exception {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user?limit=1")).build();
+            while (process.isAlive() && System.nanoTime() - start < BUDGET.toNanos() * 2) {
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return Duration.ofNanos(System.nanoTime() - start);
+                    }
+                } catch (ConnectException ex) {
+                    Thread.sleep(20);
+                }
+            }
+            return fail("No successful request, see " + log);
+        }
+
+        boolean logContains(String text) throws IOException {
+            return Files.readString(log.toPath()).contains(text);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.services.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"user.concurrency.write.initial=1", "user.concurrency.write.min=1", "user.concurrency.write.max=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles("in-memory")
+class ConcurrencyLimitInterceptorTest {
+    private static final String USER_REQUEST = "{\"userName\":\"dummyUser\",\"email\":\"dummy@dummy.com\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private UserService userService;
+
+    @Test
+    @DisplayName("A saturated write limit sheds writes with 503 while reads still succeed")
+    void shedsWritesOnly() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.tryCreateUser(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return UserCreationStatus.CREATED;
+        });
+        when(userService.findUserByUserName(anyString()))
+                .thenReturn(Optional.of(UserResponse.builder().id("1").userName("dummyUser").version(0L).build()));
+        when(userService.lookupUsers(any())).thenReturn(UserLookupResponse.builder()
+                .usersByUserName(Map.of()).usersByEmail(Map.of()).missingUserNames(List.of()).missingEmails(List.of()).build());
+
+        // holds the only write slot until released
+        AtomicInteger firstStatus = new AtomicInteger();
+        Thread first = Thread.ofPlatform().start(() -> {
+            try {
+                firstStatus.set(mockMvc.perform(MockMvcRequestBuilders.post("/api/user")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(USER_REQUEST))
+                        .andReturn().getResponse().getStatus());
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        writing.await();
+        try {
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/user")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(USER_REQUEST))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[" + USER_REQUEST + "]"))
+                    .andExpect(status().isServiceUnavailable());
+
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/user/dummyUser"))
+                    .andExpect(status().isOk());
+            // a POST that only reads is limited as a read
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/user/lookup")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"userNames\":[\"dummyUser\"]}"))
+                    .andExpect(status().isOk());
+        } finally {
+            release.countDown();
+            first.join();
+        }
+        assertEquals(201, firstStatus.get());
+    }
+}
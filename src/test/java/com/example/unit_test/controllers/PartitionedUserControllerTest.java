@@ -0,0 +1,210 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.EmailPartitionIndex;
+import com.example.unit_test.repositories.MongoEmailPartitionIndex;
+import com.example.unit_test.repositories.PartitionedUserRepository;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.utils.DuplicateKeyField;
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.example.unit_test.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the partitioned profile against a real mongod: users in one database per partition, email claims in the default one
+@SpringBootTest(properties = "user.partitions.stale-claim-age=0s")
+@AutoConfigureMockMvc
+@ActiveProfiles("partitioned")
+class PartitionedUserControllerTest {
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.4.2");
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MongoClient mongoClient;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private UserProperties userProperties;
+    private PartitionedUserRepository repository;
+    private EmailPartitionIndex emailIndex;
+
+    static {
+        mongoDBContainer.start();
+    }
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry dynamicPropertyRegistry) {
+        dynamicPropertyRegistry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        repository = (PartitionedUserRepository) userRepository;
+        // the claims collection the repository uses, read directly
+        emailIndex = new MongoEmailPartitionIndex(mongoTemplate, userProperties.getPartitions().getEmailIndexCollection(), Duration.ZERO);
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("An email taken in one partition is rejected in another")
+    void emailUniqueAcrossPartitions() throws Exception {
+        String other = userNameOutsidePartitionOf("first");
+        create("first", "taken@dummy.com").andExpect(status().isCreated());
+
+        create(other, "taken@dummy.com")
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE));
+
+        int partition = repository.partitionOf("first");
+        assertEquals(partition, emailIndex.find("taken@dummy.com").partition());
+        assertEquals(1, partitionTemplate(partition).count(new Query(), User.class));
+        assertNull(repository.findUserByUserName(other));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/" + other)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Duplicate claims in one batch are rejected and the claims of rejected users released")
+    void duplicateClaims() {
+        String other = userNameOutsidePartitionOf("first");
+        repository.insert(user("first", "taken@dummy.com"));
+
+        Map<Integer, DuplicateKeyField> rejected = repository.insertUnordered(List.of(
+                user(other, "taken@dummy.com"),
+                user("second", "same@dummy.com"),
+                user("third", "same@dummy.com"),
+                user("first", "free@dummy.com")));
+
+        assertEquals(Map.of(0, DuplicateKeyField.EMAIL, 2, DuplicateKeyField.EMAIL, 3, DuplicateKeyField.USER_NAME), rejected);
+        assertEquals(repository.findUserByUserName("second").getId(), emailIndex.find("same@dummy.com").userId());
+        assertNull(emailIndex.find("free@dummy.com"));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    @DisplayName("A stale claim whose user was never written is taken over")
+    void takesOverStaleClaim() throws Exception {
+        emailIndex.claimAll(List.of(new EmailPartitionIndex.Claim("orphan@dummy.com", 1, "never-written")));
+
+        create("user", "orphan@dummy.com").andExpect(status().isCreated());
+
+        User user = repository.findUserByEmail("orphan@dummy.com");
+        assertEquals("user", user.getUserName());
+        assertEquals(new EmailPartitionIndex.Claim("orphan@dummy.com", repository.partitionOf("user"), user.getId()),
+                emailIndex.find("orphan@dummy.com"));
+    }
+
+    @Test
+    @DisplayName("A claim held by an existing user is not taken over")
+    void keepsClaimOfExistingUser() {
+        String other = userNameOutsidePartitionOf("first");
+        User first = repository.insert(user("first", "taken@dummy.com"));
+
+        DuplicateKeyException ex = assertThrows(DuplicateKeyException.class, () -> repository.insert(user(other, "taken@dummy.com")));
+
+        assertEquals(DuplicateKeyField.EMAIL, DuplicateKeyField.fromErrorMessage(ex.getMessage()));
+        assertEquals(first.getId(), emailIndex.find("taken@dummy.com").userId());
+    }
+
+    @Test
+    @DisplayName("Release drops only the claim of the given user")
+    void release() {
+        User first = repository.insert(user("first", "taken@dummy.com"));
+        EmailPartitionIndex.Claim claim = emailIndex.find("taken@dummy.com");
+
+        emailIndex.release(new EmailPartitionIndex.Claim("taken@dummy.com", claim.partition(), "someone-else"));
+        assertEquals(first.getId(), emailIndex.find("taken@dummy.com").userId());
+
+        // a userName taken in its partition gives the email back
+        assertThrows(DuplicateKeyException.class, () -> repository.insert(user("first", "free@dummy.com")));
+        assertNull(emailIndex.find("free@dummy.com"));
+
+        emailIndex.release(claim);
+        assertNull(emailIndex.find("taken@dummy.com"));
+    }
+
+    @Test
+    @DisplayName("A rename into another partition moves the user and its claim")
+    void movesRenamedUser() {
+        String other = userNameOutsidePartitionOf("first");
+        User user = repository.insert(user("first", "taken@dummy.com"));
+
+        user.setUserName(other);
+        repository.save(user);
+
+        assertEquals(0, partitionTemplate(repository.partitionOf("first")).count(new Query(), User.class));
+        assertEquals(1L, repository.findUserByUserName(other).getVersion());
+        assertEquals(new EmailPartitionIndex.Claim("taken@dummy.com", repository.partitionOf(other), user.getId()),
+                emailIndex.find("taken@dummy.com"));
+    }
+
+    @Test
+    @DisplayName("Sorted pages and queries by example merge what every partition returns")
+    void sortsAndQueriesAcrossPartitions() {
+        repository.insertUnordered(IntStream.range(0, 20).mapToObj(i -> user("user" + i, "user" + i + "@dummy.com")).toList());
+        List<String> descending = IntStream.range(0, 20).mapToObj(i -> "user" + i).sorted(Comparator.reverseOrder()).toList();
+
+        Page<User> page = repository.findAll(PageRequest.of(1, 5, Sort.by(Sort.Direction.DESC, "userName")));
+        assertEquals(descending.subList(5, 10), page.map(User::getUserName).getContent());
+        assertEquals(20, page.getTotalElements());
+        Example<User> probe = Example.of(User.builder().email("user1").build(),
+                ExampleMatcher.matching().withMatcher("email", ExampleMatcher.GenericPropertyMatchers.startsWith()));
+        assertEquals(11, repository.count(probe));
+        assertEquals(List.of("user1", "user10", "user11"), repository.findAll(probe, Sort.by("userName"))
+                .stream().limit(3).map(User::getUserName).toList());
+    }
+
+    private ResultActions create(String userName, String email) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.post("/api/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userName\":\"" + userName + "\",\"email\":\"" + email + "\"}"));
+    }
+
+    private MongoTemplate partitionTemplate(int partition) {
+        return new MongoTemplate(mongoClient, userProperties.getPartitions().getDatabases().get(partition));
+    }
+
+    private String userNameOutsidePartitionOf(String userName) {
+        return IntStream.range(0, 100).mapToObj(i -> "other" + i)
+                .filter(other -> repository.partitionOf(other) != repository.partitionOf(userName))
+                .findFirst().orElseThrow();
+    }
+
+    private static User user(String userName, String email) {
+        return User.builder().userName(userName).email(email).build();
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.dto.ErrorResponse;
+import com.example.unit_test.dto.UserLookupResponse;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.ReactiveUserRepository;
+import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.services.UserService;
+import com.example.unit_test.utils.ErrorResponses;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.example.unit_test.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// the WebFlux stack; the reactive repository is mocked and the blocking paths run on the in-memory repository
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles({"reactive", "in-memory"})
+@Import(ReactiveUserControllerTest.CreatedUsers.class)
+class ReactiveUserControllerTest {
+    private static final String USER_REQUEST = "{\"userName\":\"dummyUser\",\"email\":\"dummy@dummy.com\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CreatedUsers createdUsers;
+    @MockBean
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @BeforeEach
+    public void beforeEach() {
+        userRepository.deleteAll();
+        createdUsers.clear();
+    }
+
+    @Test
+    @DisplayName("Get existing user")
+    void getUser() {
+        when(reactiveUserRepository.findUserByUserName("dummyUser"))
+                .thenReturn(Mono.just(User.builder().id("1").userName("dummyUser").email("dummy@dummy.com").build()));
+
+        UserResponse userResponse = webTestClient.get().uri("/api/user/dummyUser")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(userResponse);
+        assertEquals("dummyUser", userResponse.getUserName());
+        assertEquals("dummy@dummy.com", userResponse.getEmail());
+    }
+
+    @Test
+    @DisplayName("Get user as CBOR, JSON without an Accept header")
+    void getUserAsCbor() throws Exception {
+        when(reactiveUserRepository.findUserByUserName("dummyUser"))
+                .thenReturn(Mono.just(User.builder().id("1").userName("dummyUser").email("dummy@dummy.com").build()));
+
+        byte[] cbor = webTestClient.get().uri("/api/user/dummyUser")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        assertEquals("dummyUser", cborHttpMessageConverter.getObjectMapper().readValue(cbor, UserResponse.class).getUserName());
+
+        webTestClient.get().uri("/api/user/dummyUser")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    @DisplayName("Get missing user answers 404 in the requested encoding")
+    void getMissingUser() throws Exception {
+        when(reactiveUserRepository.findUserByUserName("dummyUser")).thenReturn(Mono.empty());
+
+        ErrorResponse errorResponse = webTestClient.get().uri("/api/user/dummyUser")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(ErrorResponse.class)
+                .returnResult().getResponseBody();
+        assertNotNull(errorResponse);
+        assertEquals(ErrorResponses.notFoundMessage("dummyUser"), errorResponse.getMessage());
+
+        byte[] cbor = webTestClient.get().uri("/api/user/dummyUser")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        assertEquals(ErrorResponses.notFoundMessage("dummyUser"),
+                cborHttpMessageConverter.getObjectMapper().readValue(cbor, ErrorResponse.class).getMessage());
+    }
+
+    @Test
+    @DisplayName("Create user")
+    void createUser() {
+        when(reactiveUserRepository.insert(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        webTestClient.post().uri("/api/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(USER_REQUEST)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    @DisplayName("Create user drops the cached miss and announces the user")
+    void createUserInvalidatesCache() {
+        when(reactiveUserRepository.insert(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        assertTrue(userService.findUserByUserName("dummyUser").isEmpty());
+        // written behind the cache's back, as the reactive repository would
+        userRepository.insert(User.builder().userName("dummyUser").email("dummy@dummy.com").build());
+
+        webTestClient.post().uri("/api/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(USER_REQUEST)
+                .exchange()
+                .expectStatus().isCreated();
+
+        assertTrue(userService.findUserByUserName("dummyUser").isPresent());
+        assertEquals(List.of("dummyUser"), createdUsers);
+    }
+
+    @Test
+    @DisplayName("Create user without userName and email answers 400")
+    void createUserWithoutCredentials() {
+        ErrorResponse errorResponse = webTestClient.post().uri("/api/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"firstName\":\"dummy\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(errorResponse);
+        assertEquals(MISSING_CREDENTIALS_EXCEPTION_MESSAGE, errorResponse.getMessage());
+    }
+
+    @Test
+    @DisplayName("Create user with a taken userName answers 409")
+    void createDuplicateUser() {
+        when(reactiveUserRepository.insert(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error collection: springboot.users index: userName dup key: { userName: \"dummyUser\" }")));
+
+        ErrorResponse errorResponse = webTestClient.post().uri("/api/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(USER_REQUEST)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(ErrorResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(errorResponse);
+        assertEquals(USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE, errorResponse.getMessage());
+    }
+
+    @Test
+    @DisplayName("Lookup runs the blocking service off the event loop")
+    void lookupUsers() {
+        userRepository.insert(User.builder().userName("dummyUser").email("dummy@dummy.com").build());
+
+        UserLookupResponse userLookupResponse = webTestClient.post().uri("/api/user/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userNames\":[\"dummyUser\",\"missingUser\"]}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserLookupResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(userLookupResponse);
+        assertEquals("dummy@dummy.com", userLookupResponse.getUsersByUserName().get("dummyUser").getEmail());
+        assertEquals(List.of("missingUser"), userLookupResponse.getMissingUserNames());
+    }
+
+    @Test
+    @DisplayName("Lookup over the size limit answers 400")
+    void lookupTooManyUsers() {
+        String userNames = IntStream.range(0, 1_001).mapToObj(i -> "\"user" + i + "\"").collect(Collectors.joining(","));
+
+        ErrorResponse errorResponse = webTestClient.post().uri("/api/user/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userNames\":[" + userNames + "]}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorResponse.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(errorResponse);
+        assertEquals("At most 1000 userNames and emails can be looked up at once", errorResponse.getMessage());
+    }
+
+    // events are published on the event loop, so they are collected by a listener rather than per test thread
+    @TestComponent
+    static class CreatedUsers extends CopyOnWriteArrayList<String> {
+        @EventListener
+        public void onUsersCreated(UsersCreatedEvent event) {
+            event.users().forEach(user -> add(user.getUserName()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.unit_test.controllers;
+
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the web layer over the in-memory repository, for behavior that does not depend on Mongo
+@SpringBootTest(properties = "user.cache.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("in-memory")
+class UserControllerInMemoryTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void beforeEach() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Unchanged user answers If-None-Match with 304")
+    void notModified() throws Exception {
+        userRepository.insert(User.builder().userName("dummyUser").email("dummy@dummy.com").build());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/dummyUser"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/dummyUser")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Changed user answers If-None-Match with 200 and a new ETag")
+    void modified() throws Exception {
+        User user = userRepository.insert(User.builder().userName("dummyUser").email("dummy@dummy.com").build());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/dummyUser"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        user.setFirstName("Changed");
+        userRepository.save(user);
+
+        String newETag = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/dummyUser")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(newETag);
+        assertNotEquals(eTag, newETag);
+    }
+}
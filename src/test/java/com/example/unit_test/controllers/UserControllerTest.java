@@ -1,8 +1,10 @@
 package com.example.unit_test.controllers;
 
+import com.example.unit_test.dto.UserLookupRequest;
 import com.example.unit_test.dto.UserRequest;
 import com.example.unit_test.models.User;
 import com.example.unit_test.repositories.UserRepository;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +22,9 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
 import static com.example.unit_test.utils.Constants.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -118,6 +123,87 @@ class UserControllerTest {
         String message = jsonObject.get("message").getAsString();
         assertEquals(message,USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE);
     }
+    @Test
+    @DisplayName("Create users in batch")
+    void createUsersInBatch() throws Exception {
+        User user = User.builder()
+                .id("123")
+                .email("gg@gmail.com").build();
+        userRepository.save(user);
+        UserRequest[] requests = {createSuccessfullyUserRequest(), createEmailNotUniqueUserRequest(), createFailedUserRequest()};
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/user/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JsonArray jsonArray = jsonParser.parse(result.getResponse().getContentAsString()).getAsJsonArray();
+        assertEquals("CREATED", jsonArray.get(0).getAsJsonObject().get("status").getAsString());
+        assertEquals("DUPLICATE_EMAIL", jsonArray.get(1).getAsJsonObject().get("status").getAsString());
+        assertEquals("MISSING_CREDENTIALS", jsonArray.get(2).getAsJsonObject().get("status").getAsString());
+        assertEquals(2, userRepository.findAll().size());
+    }
+    @Test
+    @DisplayName("List users page by page")
+    void getUsersPageByPage() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            userRepository.save(User.builder().userName("user" + i).email("user" + i + "@gmail.com").build());
+        }
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/user")
+                        .param("limit", "2")
+                        .param("fields", "userName"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonObject page = jsonParser.parse(result.getResponse().getContentAsString()).getAsJsonObject();
+        JsonArray users = page.get("users").getAsJsonArray();
+        assertEquals(2, users.size());
+        assertEquals("user0", users.get(0).getAsJsonObject().get("userName").getAsString());
+        assertTrue(users.get(0).getAsJsonObject().get("email").isJsonNull());
+
+        result = mockMvc.perform(MockMvcRequestBuilders.get("/api/user")
+                        .param("limit", "2")
+                        .param("after", page.get("nextCursor").getAsString()))
+                .andExpect(status().isOk())
+                .andReturn();
+        page = jsonParser.parse(result.getResponse().getContentAsString()).getAsJsonObject();
+        assertEquals(1, page.get("users").getAsJsonArray().size());
+        assertTrue(page.get("nextCursor").isJsonNull());
+    }
+    @Test
+    @DisplayName("Look up several users at once")
+    void lookupUsers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            userRepository.save(User.builder().userName("user" + i).email("user" + i + "@gmail.com").build());
+        }
+        UserLookupRequest userLookupRequest = UserLookupRequest.builder()
+                .userNames(List.of("user0", "user1", "unknown"))
+                .emails(List.of("user2@gmail.com"))
+                .build();
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/user/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(userLookupRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonObject lookup = jsonParser.parse(result.getResponse().getContentAsString()).getAsJsonObject();
+        assertEquals(2, lookup.get("usersByUserName").getAsJsonObject().size());
+        assertEquals("user2", lookup.get("usersByEmail").getAsJsonObject().get("user2@gmail.com").getAsJsonObject().get("userName").getAsString());
+        assertEquals("unknown", lookup.get("missingUserNames").getAsJsonArray().get(0).getAsString());
+        assertEquals(0, lookup.get("missingEmails").getAsJsonArray().size());
+    }
+    @Test
+    @DisplayName("Export users as NDJSON")
+    void exportUsers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            userRepository.save(User.builder().userName("user" + i).email("user" + i + "@gmail.com").build());
+        }
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/_export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("user2", jsonParser.parse(lines[2]).getAsJsonObject().get("userName").getAsString());
+    }
     private UserRequest createSuccessfullyUserRequest(){
         return UserRequest.builder()
                 .userName("Dummy")
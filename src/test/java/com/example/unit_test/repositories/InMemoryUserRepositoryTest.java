@@ -0,0 +1,105 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.utils.DuplicateKeyField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserRepositoryTest {
+    private InMemoryUserRepository userRepository;
+
+    @BeforeEach
+    public void beforeEach() {
+        userRepository = new InMemoryUserRepository();
+        userRepository.insert(User.builder().userName("carol").email("carol@gmail.com").firstName("Carol").build());
+        userRepository.insert(User.builder().userName("alice").email("alice@yahoo.com").firstName("Alice").lastName("Smith").build());
+        userRepository.insert(User.builder().userName("Bob").email("bob@gmail.com").lastName("Smith").build());
+    }
+
+    @Test
+    @DisplayName("Sorts by any property, nulls lowest unless told otherwise")
+    void sorts() {
+        assertEquals(List.of("Bob", "alice", "carol"), userNames(userRepository.findAll(Sort.by("userName"))));
+        assertEquals(List.of("alice", "Bob", "carol"), userNames(userRepository.findAll(Sort.by(Sort.Order.asc("userName").ignoreCase()))));
+        assertEquals(List.of("carol", "Bob", "alice"), userNames(userRepository.findAll(Sort.by("lastName", "userName"))));
+        // ties keep _id order
+        assertEquals(List.of("alice", "Bob", "carol"), userNames(userRepository.findAll(Sort.by(Sort.Direction.DESC, "lastName"))));
+        assertEquals(List.of("alice", "carol", "Bob"), userNames(userRepository.findAll(Sort.by(Sort.Order.asc("firstName").nullsLast()))));
+        assertThrows(PropertyReferenceException.class, () -> userRepository.findAll(Sort.by("unknown")));
+
+        Page<User> page = userRepository.findAll(PageRequest.of(1, 2, Sort.by("email")));
+        assertEquals(List.of("carol"), userNames(page.getContent()));
+        assertEquals(3, page.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Query by example matches like the Mongo repository")
+    void queriesByExample() {
+        assertEquals(List.of("alice", "Bob"), userNames(userRepository.findAll(Example.of(User.builder().lastName("Smith").build()))));
+        assertEquals("carol", userRepository.findOne(Example.of(User.builder().email("carol@gmail.com").build())).orElseThrow().getUserName());
+        assertTrue(userRepository.findOne(Example.of(User.builder().email("nobody@gmail.com").build())).isEmpty());
+
+        ExampleMatcher gmail = ExampleMatcher.matching().withMatcher("email", ExampleMatcher.GenericPropertyMatchers.endsWith());
+        assertEquals(2, userRepository.count(Example.of(User.builder().email("@gmail.com").build(), gmail)));
+        ExampleMatcher ignoringCase = ExampleMatcher.matching().withIgnoreCase().withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+        assertEquals(List.of("Bob"), userNames(userRepository.findAll(Example.of(User.builder().userName("bo").build(), ignoringCase))));
+        ExampleMatcher any = ExampleMatcher.matchingAny();
+        assertEquals(List.of("carol", "Bob"), userNames(userRepository.findAll(
+                Example.of(User.builder().userName("carol").email("bob@gmail.com").build(), any), Sort.by("email").descending())));
+        ExampleMatcher includeNulls = ExampleMatcher.matching().withIncludeNullValues().withIgnorePaths("id", "userName", "email", "phoneNumber", "version");
+        assertEquals(List.of("Bob"), userNames(userRepository.findAll(Example.of(User.builder().lastName("Smith").build(), includeNulls))));
+        assertTrue(userRepository.exists(Example.of(User.builder().firstName("Alice").build())));
+        assertFalse(userRepository.exists(Example.of(User.builder().firstName("Alice").lastName("Jones").build())));
+    }
+
+    @Test
+    @DisplayName("Fluent queries sort, limit, project and read as UserResponse")
+    void fluentQueries() {
+        Example<User> smiths = Example.of(User.builder().lastName("Smith").build());
+        List<User> projected = userRepository.findBy(smiths, query -> query.sortBy(Sort.by("userName")).project("userName").all());
+        assertEquals(List.of("Bob", "alice"), userNames(projected));
+        assertNotNull(projected.get(0).getId());
+        assertNull(projected.get(0).getEmail());
+
+        UserResponse first = userRepository.findBy(smiths, query -> query.as(UserResponse.class).sortBy(Sort.by("email")).firstValue());
+        assertEquals("alice@yahoo.com", first.getEmail());
+        assertEquals(1, userRepository.findBy(smiths, query -> query.limit(1).all()).size());
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> userRepository.findBy(smiths, query -> query.oneValue()));
+        assertThrows(IllegalArgumentException.class, () -> userRepository.findBy(smiths, query -> query.as(String.class)));
+    }
+
+    @Test
+    @DisplayName("Unordered inserts report which unique index rejected each user")
+    void insertsUnordered() {
+        String aliceId = userRepository.findUserByUserName("alice").getId();
+
+        Map<Integer, DuplicateKeyField> rejected = userRepository.insertUnordered(List.of(
+                User.builder().userName("dave").email("dave@gmail.com").build(),
+                User.builder().userName("alice").email("other@gmail.com").build(),
+                User.builder().userName("erin").email("bob@gmail.com").build(),
+                User.builder().id(aliceId).userName("frank").email("frank@gmail.com").build()));
+
+        assertEquals(Map.of(1, DuplicateKeyField.USER_NAME, 2, DuplicateKeyField.EMAIL, 3, DuplicateKeyField.ID), rejected);
+        assertNotNull(userRepository.findUserByUserName("dave"));
+        assertNull(userRepository.findUserByUserName("frank"));
+        assertEquals(4, userRepository.count());
+    }
+
+    private static List<String> userNames(List<User> users) {
+        return users.stream().map(User::getUserName).toList();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.models.User;
+import com.example.unit_test.utils.DuplicateKeyField;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedUserRepositoryTest {
+    private final List<UserRepository> partitions = List.of(new InMemoryUserRepository(), new InMemoryUserRepository(), new InMemoryUserRepository());
+
+    @Test
+    @DisplayName("Users are spread by userName and found by userName and email")
+    void routesByUserName() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        repository.insertUnordered(users(0, 30));
+
+        assertEquals(30, repository.count());
+        for (UserRepository partition : partitions) {
+            assertTrue(partition.count() > 0);
+        }
+        User user = repository.findUserByEmail("user7@dummy.com");
+        assertEquals("user7", user.getUserName());
+        assertEquals(user.getId(), partitions.get(repository.partitionOf("user7")).findUserByUserName("user7").getId());
+        assertEquals(3, repository.findUserResponsesByEmailIn(List.of("user1@dummy.com", "user2@dummy.com", "user3@dummy.com", "missing@dummy.com")).size());
+        assertEquals(2, repository.findAllByUserNameIn(List.of("user4", "user5", "missing")).size());
+    }
+
+    @Test
+    @DisplayName("An email stays unique across partitions")
+    void emailUniqueAcrossPartitions() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        String other = IntStream.range(0, 100).mapToObj(i -> "other" + i)
+                .filter(userName -> repository.partitionOf(userName) != repository.partitionOf("first"))
+                .findFirst().orElseThrow();
+        repository.insert(user("first", "taken@dummy.com"));
+
+        DuplicateKeyException ex = assertThrows(DuplicateKeyException.class, () -> repository.insert(user(other, "taken@dummy.com")));
+        assertEquals(DuplicateKeyField.EMAIL, DuplicateKeyField.fromErrorMessage(ex.getMessage()));
+        Map<Integer, DuplicateKeyField> rejected = repository.insertUnordered(List.of(
+                user(other, "taken@dummy.com"),
+                user("second", "same@dummy.com"),
+                user("third", "same@dummy.com"),
+                user("first", "free@dummy.com")));
+        assertEquals(Map.of(0, DuplicateKeyField.EMAIL, 2, DuplicateKeyField.EMAIL, 3, DuplicateKeyField.USER_NAME), rejected);
+        // the claim of the rejected userName is released again
+        assertNull(repository.findUserByEmail("free@dummy.com"));
+        assertDoesNotThrow(() -> repository.insert(user("fourth", "free@dummy.com")));
+    }
+
+    @Test
+    @DisplayName("A claim left behind by a user that was never written is taken over once stale")
+    void takesOverStaleClaim() {
+        InMemoryEmailPartitionIndex emailIndex = new InMemoryEmailPartitionIndex(Duration.ZERO);
+        PartitionedUserRepository repository = new PartitionedUserRepository(partitions, emailIndex);
+        emailIndex.claimAll(List.of(new EmailPartitionIndex.Claim("orphan@dummy.com", 1, "never-written")));
+
+        repository.insert(user("user", "orphan@dummy.com"));
+
+        assertEquals("user", repository.findUserByEmail("orphan@dummy.com").getUserName());
+    }
+
+    @Test
+    @DisplayName("Pages and streams merge the partitions in id order")
+    void mergesInIdOrder() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        repository.insertUnordered(users(0, 25));
+
+        List<String> paged = new ArrayList<>();
+        String after = null;
+        for (List<UserResponse> page = repository.findUserResponsesAfter(null, 10, List.of("userName")); !page.isEmpty();
+             page = repository.findUserResponsesAfter(after, 10, List.of("userName"))) {
+            page.forEach(user -> paged.add(user.getId()));
+            after = page.get(page.size() - 1).getId();
+        }
+        List<String> streamed;
+        try (Stream<UserResponse> users = repository.streamUserResponses()) {
+            streamed = users.map(UserResponse::getId).toList();
+        }
+        assertEquals(25, paged.size());
+        assertEquals(paged.stream().sorted().toList(), paged);
+        assertEquals(paged, streamed);
+    }
+
+    @Test
+    @DisplayName("Sorted reads and pages merge the partitions in the requested order")
+    void sortsAcrossPartitions() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        repository.insertUnordered(users(0, 25));
+        List<String> descending = IntStream.range(0, 25).mapToObj(i -> "user" + i)
+                .sorted(Comparator.reverseOrder()).toList();
+
+        assertEquals(descending, repository.findAll(Sort.by(Sort.Direction.DESC, "userName")).stream().map(User::getUserName).toList());
+        Page<User> page = repository.findAll(PageRequest.of(2, 5, Sort.by(Sort.Direction.DESC, "userName")));
+        assertEquals(descending.subList(10, 15), page.map(User::getUserName).getContent());
+        assertEquals(25, page.getTotalElements());
+        List<String> ids = repository.findAll().stream().map(User::getId).toList();
+        assertEquals(ids.subList(20, 25), repository.findAll(PageRequest.of(4, 5)).map(User::getId).getContent());
+    }
+
+    @Test
+    @DisplayName("Queries by example run on every partition")
+    void queriesByExample() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        List<User> users = users(0, 20);
+        users.forEach(user -> user.setLastName(user.getUserName().length() == 5 ? "Short" : "Long"));
+        repository.insertUnordered(users);
+        Example<User> shortNames = Example.of(User.builder().lastName("Short").build());
+
+        assertEquals(10, repository.count(shortNames));
+        assertTrue(repository.exists(shortNames));
+        assertEquals(List.of("user9", "user8", "user7"), repository.findAll(shortNames, Sort.by(Sort.Direction.DESC, "userName"))
+                .stream().limit(3).map(User::getUserName).toList());
+        Page<User> page = repository.findAll(shortNames, PageRequest.of(1, 4, Sort.by("userName")));
+        assertEquals(List.of("user4", "user5", "user6", "user7"), page.map(User::getUserName).getContent());
+        assertEquals(10, page.getTotalElements());
+        assertEquals("user12", repository.findOne(Example.of(User.builder().userName("user12").build())).orElseThrow().getUserName());
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> repository.findOne(shortNames));
+        assertEquals(List.of("user1", "user0"), repository.findBy(shortNames,
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "userName")).stream().skip(8).map(User::getUserName).toList()));
+    }
+
+    @Test
+    @DisplayName("A rename into another partition moves the user and its email claim")
+    void movesRenamedUser() {
+        PartitionedUserRepository repository = repository(Duration.ofMinutes(1));
+        String other = IntStream.range(0, 100).mapToObj(i -> "other" + i)
+                .filter(userName -> repository.partitionOf(userName) != repository.partitionOf("first"))
+                .findFirst().orElseThrow();
+        User user = repository.insert(user("first", "first@dummy.com"));
+
+        user.setUserName(other);
+        User moved = repository.save(user);
+
+        assertEquals(1L, moved.getVersion());
+        assertNull(partitions.get(repository.partitionOf("first")).findById(user.getId()).orElse(null));
+        assertEquals(user.getId(), repository.findUserByUserName(other).getId());
+        assertEquals(other, repository.findUserByEmail("first@dummy.com").getUserName());
+        assertEquals(1, repository.count());
+
+        // back again, with a new email
+        moved.setUserName("first");
+        moved.setEmail("new@dummy.com");
+        repository.save(moved);
+        assertEquals(2L, moved.getVersion());
+        assertNull(repository.findUserByEmail("first@dummy.com"));
+        assertEquals("first", repository.findUserByEmail("new@dummy.com").getUserName());
+        assertDoesNotThrow(() -> repository.insert(user(other, "first@dummy.com")));
+
+        User stale = repository.findUserByUserName("first");
+        stale.setVersion(0L);
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(stale));
+        User current = repository.findUserByUserName("first");
+        current.setUserName(other);
+        current.setEmail("newer@dummy.com");
+        assertThrows(DuplicateKeyException.class, () -> repository.save(current));
+        assertEquals(2L, repository.findUserByUserName("first").getVersion());
+        assertNull(repository.findUserByEmail("newer@dummy.com"));
+        assertEquals("first", repository.findUserByEmail("new@dummy.com").getUserName());
+    }
+
+    private PartitionedUserRepository repository(Duration staleClaimAge) {
+        return new PartitionedUserRepository(partitions, new InMemoryEmailPartitionIndex(staleClaimAge));
+    }
+
+    private static List<User> users(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> user("user" + i, "user" + i + "@dummy.com")).toList();
+    }
+
+    private static User user(String userName, String email) {
+        return User.builder().userName(userName).email(email).build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.unit_test.repositories;
+
+import com.example.unit_test.dto.UserResponse;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCodecTest {
+    private final UserResponseCodec codec = new UserResponseCodec();
+
+    @Test
+    @DisplayName("Decode a users document into UserResponse")
+    void decode() {
+        ObjectId id = new ObjectId();
+        BsonDocument document = new BsonDocument()
+                .append("_id", new BsonObjectId(id))
+                .append("userName", new BsonString("dummyUser"))
+                .append("email", new BsonString("dummy@dummy.com"))
+                .append("firstName", new BsonString("Dummy"))
+                .append("lastName", new BsonNull())
+                .append("phoneNumber", new BsonString("054328712"))
+                .append("version", new BsonInt64(3))
+                .append("_class", new BsonString("com.example.unit_test.models.User"))
+                .append("unknown", new BsonInt64(42));
+
+        UserResponse userResponse = codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+
+        assertEquals(UserResponse.builder()
+                .id(id.toHexString())
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .firstName("Dummy")
+                .phoneNumber("054328712")
+                .version(3L)
+                .build(), userResponse);
+    }
+
+    @Test
+    @DisplayName("Encoded UserResponse decodes back to the same value")
+    void roundTrip() {
+        UserResponse userResponse = UserResponse.builder()
+                .id("123")
+                .userName("dummyUser")
+                .email("dummy@dummy.com")
+                .version(2L)
+                .build();
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), userResponse, EncoderContext.builder().build());
+
+        assertEquals(userResponse, codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build()));
+    }
+}
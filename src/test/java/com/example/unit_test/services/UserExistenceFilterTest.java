@@ -0,0 +1,81 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExistenceFilterTest {
+
+    @Test
+    @DisplayName("Rebuild reads every stored user")
+    void rebuild() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.streamUserResponses()).thenReturn(Stream.of(userResponse("user0"), userResponse("user1")));
+        UserExistenceFilter filter = new UserExistenceFilter(userRepository, new UserProperties());
+
+        filter.rebuild();
+
+        assertTrue(filter.stats().isReady());
+        assertTrue(filter.mightContainUserName("user0"));
+        assertTrue(filter.mightContainEmail("user1@gmail.com"));
+        assertFalse(filter.mightContainUserName("unknown"));
+        assertFalse(filter.mightContainEmail("unknown@gmail.com"));
+    }
+
+    @Test
+    @DisplayName("Users created after and during a rebuild are added")
+    void addsCreatedUsers() {
+        UserRepository userRepository = mock(UserRepository.class);
+        AtomicReference<UserExistenceFilter> filter = new AtomicReference<>();
+        // a create lands while the rebuild is still scanning the collection
+        when(userRepository.streamUserResponses()).thenReturn(Stream.of(userResponse("user0"))
+                .peek(user -> filter.get().onUsersCreated(new UsersCreatedEvent(List.of(user("during"))))));
+        filter.set(new UserExistenceFilter(userRepository, new UserProperties()));
+
+        filter.get().rebuild();
+        filter.get().onUsersCreated(new UsersCreatedEvent(List.of(user("after"))));
+
+        assertTrue(filter.get().mightContainUserName("during"));
+        assertTrue(filter.get().mightContainEmail("during@gmail.com"));
+        assertTrue(filter.get().mightContainUserName("after"));
+        assertTrue(filter.get().mightContainEmail("after@gmail.com"));
+    }
+
+    @Test
+    @DisplayName("Filters are only built once a check asks for them")
+    void buildsOnFirstCheck() throws InterruptedException {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.streamUserResponses()).thenReturn(Stream.of(userResponse("user0")));
+        UserExistenceFilter filter = new UserExistenceFilter(userRepository, new UserProperties());
+
+        filter.onUsersCreated(new UsersCreatedEvent(List.of(user("created"))));
+        verify(userRepository, never()).streamUserResponses();
+
+        assertTrue(filter.mightContainUserName("unknown"));
+        for (int i = 0; i < 500 && !filter.stats().isReady(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(filter.stats().isReady());
+        assertFalse(filter.mightContainUserName("unknown"));
+        verify(userRepository, times(1)).streamUserResponses();
+    }
+
+    private static UserResponse userResponse(String userName) {
+        return UserResponse.builder().userName(userName).email(userName + "@gmail.com").build();
+    }
+
+    private static User user(String userName) {
+        return User.builder().userName(userName).email(userName + "@gmail.com").build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserImportResponse;
+import com.example.unit_test.dto.UserImportStatus;
+import com.example.unit_test.dto.UserRequest;
+import com.example.unit_test.utils.InvalidRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Records are written in chunks and rejected lines go to the reject file")
+    void importUpload() throws Exception {
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> results(invocation.getArgument(0)));
+        UserImportService userImportService = new UserImportService(userService, new ObjectMapper(), properties());
+        String file = """
+                {"userName":"user0","email":"user0@dummy.com"}
+                {"userName":"user1","email":"user1@dummy.com","unknown":[1,2]}
+
+                {"userName":
+                {"firstName":"Dummy"}
+                {"userName":"user2","email":"user2@dummy.com"}
+                """;
+
+        UserImportResponse job = userImportService.importUpload(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+        UserImportResponse done = awaitFinished(userImportService, job.getJobId());
+
+        assertEquals(UserImportStatus.COMPLETED, done.getStatus());
+        assertEquals(5, done.getRecords());
+        assertEquals(3, done.getCreated());
+        assertEquals(2, done.getRejected());
+        verify(userService, times(2)).createUsers(anyList());
+        List<String> rejects = Files.readAllLines(Path.of(done.getRejectsFile()));
+        assertEquals(2, rejects.size());
+        assertTrue(rejects.stream().anyMatch(reject -> reject.contains("\"line\":4") && reject.contains("MALFORMED")));
+        assertTrue(rejects.stream().anyMatch(reject -> reject.contains("\"line\":5") && reject.contains("MISSING_CREDENTIALS")));
+    }
+
+    @Test
+    @DisplayName("Server-side files must be below the import directory")
+    void importFileConfined() throws Exception {
+        UserImportService userImportService = new UserImportService(mock(UserService.class), new ObjectMapper(), properties());
+        Files.writeString(directory.resolve("users.csv"), "userName,email\n");
+
+        assertThrows(InvalidRequestException.class, () -> userImportService.importFile("../users.csv", UserImportService.Format.CSV));
+        assertThrows(InvalidRequestException.class, () -> userImportService.importFile("missing.csv", UserImportService.Format.CSV));
+        UserImportResponse job = userImportService.importFile("users.csv", UserImportService.Format.CSV);
+        assertEquals(UserImportStatus.COMPLETED, awaitFinished(userImportService, job.getJobId()).getStatus());
+    }
+
+    @Test
+    @DisplayName("The import fails instead of hanging when every writer has died")
+    void failsWhenWritersDie() throws Exception {
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenThrow(new OutOfMemoryError("Java heap space"));
+        UserImportService userImportService = new UserImportService(userService, new ObjectMapper(), properties());
+        StringBuilder file = new StringBuilder();
+        // far more chunks than the queue between the reader and the writers holds
+        for (int i = 0; i < 100; i++) {
+            file.append("{\"userName\":\"user").append(i).append("\"}\n");
+        }
+
+        UserImportResponse job = userImportService.importUpload(new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+        UserImportResponse done = awaitFinished(userImportService, job.getJobId());
+
+        assertEquals(UserImportStatus.FAILED, done.getStatus());
+        assertTrue(done.getError().contains("OutOfMemoryError"), done.getError());
+    }
+
+    @Test
+    @DisplayName("Finished jobs expire, running ones stay")
+    void expiresFinishedJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return results(invocation.getArgument(0));
+        });
+        UserProperties properties = properties();
+        properties.getBulkImport().setJobTtl(Duration.ofMillis(200));
+        UserImportService userImportService = new UserImportService(userService, new ObjectMapper(), properties);
+        String file = "{\"userName\":\"user0\"}\n";
+
+        UserImportResponse job = userImportService.importUpload(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+        Thread.sleep(400);
+        assertEquals(UserImportStatus.RUNNING, userImportService.status(job.getJobId()).orElseThrow().getStatus());
+        release.countDown();
+
+        assertEquals(UserImportStatus.COMPLETED, awaitFinished(userImportService, job.getJobId()).getStatus());
+        for (int i = 0; i < 500 && userImportService.status(job.getJobId()).isPresent(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(userImportService.status(job.getJobId()).isEmpty());
+    }
+
+    private UserProperties properties() {
+        UserProperties properties = new UserProperties();
+        properties.getBulkImport().setDirectory(directory.toString());
+        properties.getBulkImport().setWorkDirectory(directory.toString());
+        properties.getBulkImport().setChunkSize(2);
+        properties.getBulkImport().setWriters(2);
+        return properties;
+    }
+
+    private static UserImportResponse awaitFinished(UserImportService userImportService, String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            UserImportResponse status = userImportService.status(jobId).orElseThrow();
+            if (status.getStatus() != UserImportStatus.RUNNING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Import " + jobId + " did not finish");
+    }
+
+    private static List<UserCreationResult> results(List<UserRequest> userRequests) {
+        List<UserCreationResult> results = new ArrayList<>();
+        for (int i = 0; i < userRequests.size(); i++) {
+            boolean missing = userRequests.get(i).getUserName() == null && userRequests.get(i).getEmail() == null;
+            results.add(UserCreationResult.builder()
+                    .index(i)
+                    .userName(userRequests.get(i).getUserName())
+                    .status(missing ? UserCreationStatus.MISSING_CREDENTIALS : UserCreationStatus.CREATED)
+                    .build());
+        }
+        return results;
+    }
+}
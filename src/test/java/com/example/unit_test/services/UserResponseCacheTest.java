@@ -0,0 +1,66 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCacheTest {
+
+    @Test
+    @DisplayName("Cached user is served without calling the loader again")
+    void cachesFoundUser() {
+        UserResponseCache cache = new UserResponseCache(new UserProperties());
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, UserResponse> loader = userName -> {
+            loads.incrementAndGet();
+            return UserResponse.builder().userName(userName).build();
+        };
+        cache.get("dummy", loader);
+        UserResponse userResponse = cache.get("dummy", loader).orElseThrow();
+        assertEquals("dummy", userResponse.getUserName());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getHitCount());
+        assertEquals(1, cache.stats().getMissCount());
+    }
+
+    @Test
+    @DisplayName("Unknown user is cached as a miss until invalidated")
+    void cachesMissingUser() {
+        UserResponseCache cache = new UserResponseCache(new UserProperties());
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, UserResponse> loader = userName -> {
+            loads.incrementAndGet();
+            return null;
+        };
+        assertTrue(cache.get("dummy", loader).isEmpty());
+        assertTrue(cache.get("dummy", loader).isEmpty());
+        assertEquals(1, loads.get());
+
+        cache.invalidate("dummy");
+        assertTrue(cache.get("dummy", loader).isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Disabled cache always calls the loader")
+    void disabledCache() {
+        UserProperties properties = new UserProperties();
+        properties.getCache().setEnabled(false);
+        UserResponseCache cache = new UserResponseCache(properties);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, UserResponse> loader = userName -> {
+            loads.incrementAndGet();
+            return UserResponse.builder().userName(userName).build();
+        };
+        cache.get("dummy", loader);
+        cache.get("dummy", loader);
+        assertEquals(2, loads.get());
+        assertFalse(cache.stats().isEnabled());
+    }
+}
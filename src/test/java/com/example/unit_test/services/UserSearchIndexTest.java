@@ -0,0 +1,77 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserSearchIndexTest {
+
+    @Test
+    @DisplayName("Build indexes the userName and email of every stored user")
+    void build() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.streamUserResponses()).thenReturn(Stream.of(userResponse("dummy1"), userResponse("dummy0"),
+                UserResponse.builder().userName("noEmail").build()));
+        UserSearchIndex index = new UserSearchIndex(userRepository, new UserProperties());
+
+        assertFalse(index.isReady());
+        index.build();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of("dummy0", "dummy1"), index.userNamesStartingWith("dum", 10));
+        assertEquals(List.of("dummy1@gmail.com"), index.emailsStartingWith("dummy1", 10));
+        assertEquals(List.of("noEmail"), index.userNamesStartingWith("no", 10));
+    }
+
+    @Test
+    @DisplayName("Users created before and during the build are kept")
+    void keepsCreatedUsers() {
+        UserRepository userRepository = mock(UserRepository.class);
+        AtomicReference<UserSearchIndex> index = new AtomicReference<>();
+        // a create lands while the build is still reading the collection
+        when(userRepository.streamUserResponses()).thenReturn(Stream.of(userResponse("stored"))
+                .peek(user -> index.get().onUsersCreated(new UsersCreatedEvent(List.of(user("during"))))));
+        index.set(new UserSearchIndex(userRepository, new UserProperties()));
+
+        index.get().onUsersCreated(new UsersCreatedEvent(List.of(user("before"))));
+        assertEquals(List.of("before"), index.get().userNamesStartingWith("", 10));
+
+        index.get().build();
+        index.get().onUsersCreated(new UsersCreatedEvent(List.of(user("after"))));
+
+        assertEquals(List.of("after", "before", "during", "stored"), index.get().userNamesStartingWith("", 10));
+        assertEquals(List.of("during@gmail.com"), index.get().emailsStartingWith("du", 10));
+    }
+
+    @Test
+    @DisplayName("Disabled index ignores creates")
+    void disabled() {
+        UserProperties properties = new UserProperties();
+        properties.getSearch().setEnabled(false);
+        UserSearchIndex index = new UserSearchIndex(mock(UserRepository.class), properties);
+
+        index.onUsersCreated(new UsersCreatedEvent(List.of(user("dummy"))));
+
+        assertFalse(index.isEnabled());
+        assertEquals(List.of(), index.userNamesStartingWith("dum", 10));
+    }
+
+    private static UserResponse userResponse(String userName) {
+        return UserResponse.builder().userName(userName).email(userName + "@gmail.com").build();
+    }
+
+    private static User user(String userName) {
+        return User.builder().userName(userName).email(userName + "@gmail.com").build();
+    }
+}
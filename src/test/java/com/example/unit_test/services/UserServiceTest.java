@@ -1,10 +1,18 @@
 package com.example.unit_test.services;
 
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserLookupRequest;
+import com.example.unit_test.dto.UserLookupResponse;
 import com.example.unit_test.dto.UserRequest;
 import com.example.unit_test.dto.UserResponse;
+import com.example.unit_test.dto.UserSearchResponse;
 import com.example.unit_test.models.User;
 import com.example.unit_test.repositories.UserRepository;
+import com.example.unit_test.utils.DuplicateKeyField;
 import com.example.unit_test.utils.DuplicateResourceException;
+import com.example.unit_test.utils.InvalidRequestException;
 import com.example.unit_test.utils.MissingCredentialsException;
 import com.example.unit_test.utils.UserNotFoundException;
 import org.junit.jupiter.api.DisplayName;
@@ -15,20 +23,29 @@ import org.mockito.internal.matchers.Any;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
+import java.util.Map;
+
+import static com.example.unit_test.utils.Constants.*;
 import static org.junit.jupiter.api.Assertions.*;
-@SpringBootTest
+@SpringBootTest(properties = {"user.cache.enabled=false", "user.bloom-filter.enabled=false"})
+@ActiveProfiles("in-memory")
 class UserServiceTest {
     @Autowired
     private UserService userService;
     @MockBean
     private UserRepository userRepository;
+    @Autowired
+    private UserProperties userProperties;
 
     @Test
     @DisplayName("Get User By userName")
     void getUserByUserName() {
         User user = createDummyUser();
-        when(userRepository.findUserByUserName(anyString())).thenReturn(user);
+        when(userRepository.findUserResponseByUserName(anyString())).thenReturn(UserMapper.mapUserToUserResponse(user));
         UserResponse userResponse = userService.getUserByUserName("dummy");
         User findedUser = mapToUser(userResponse);
         assertEquals(findedUser,user);
@@ -36,7 +53,7 @@ class UserServiceTest {
     @Test
     @DisplayName("Get unexisting User")
     void getUserByUserNameDoesNotExists() {
-        when(userRepository.findUserByUserName(anyString())).thenReturn(null);
+        when(userRepository.findUserResponseByUserName(anyString())).thenReturn(null);
         assertThrows(UserNotFoundException.class,() -> userService.getUserByUserName("dummy"));
     }
 
@@ -51,10 +68,12 @@ class UserServiceTest {
         // this lines actually make no sense because userService.createUser is return void.
         // so that we can make a userRequest directly and pass it to the service
         // then verify if the method does not throw any exceptions (because if there is no exceptions that means the test is passed
-        // and verify if the method userRepository.save() will be invoked
+        // and verify if the method userRepository.insert() will be invoked
         UserRequest userRequest = createDummyUserRequestWithFullInformation();
         assertDoesNotThrow(() -> userService.createUser(userRequest));
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).insert(any(User.class));
+        verify(userRepository, never()).findUserByUserName(anyString());
+        verify(userRepository, never()).findUserByEmail(anyString());
     }
     @Test
     @DisplayName("Create User without email/user name")
@@ -67,16 +86,155 @@ class UserServiceTest {
     @DisplayName("Create User with already existing email")
     void createUserWithAlreadyExistingEmail(){
         UserRequest userRequest = createDummyUserRequestWithAlreadyExistingEmail();
-        when(userRepository.findUserByEmail(userRequest.getEmail())).thenReturn(new User());
-        assertThrows(DuplicateResourceException.class,() -> userService.createUser(userRequest));
+        when(userRepository.insert(any(User.class))).thenThrow(duplicateKeyException("email"));
+        DuplicateResourceException ex = assertThrows(DuplicateResourceException.class,() -> userService.createUser(userRequest));
+        assertEquals(EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE, ex.getMessage());
     }
 
     @Test
     @DisplayName("Create User with already existing username")
     void createUserWithAlreadyExistingUserName(){
         UserRequest userRequest = createDummyUserRequestWithAlreadyExistingUserName();
-        when(userRepository.findUserByUserName(userRequest.getUserName())).thenReturn(new User());
-        assertThrows(DuplicateResourceException.class,() -> userService.createUser(userRequest));
+        when(userRepository.insert(any(User.class))).thenThrow(duplicateKeyException("userName"));
+        DuplicateResourceException ex = assertThrows(DuplicateResourceException.class,() -> userService.createUser(userRequest));
+        assertEquals(USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE, ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Find unexisting User without an exception")
+    void findUserByUserNameDoesNotExists() {
+        when(userRepository.findUserResponseByUserName(anyString())).thenReturn(null);
+        assertTrue(userService.findUserByUserName("dummy").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Try to create User reports rejections as a status")
+    void tryCreateUser() {
+        when(userRepository.insert(any(User.class))).thenThrow(duplicateKeyException("userName"));
+        assertEquals(UserCreationStatus.DUPLICATE_USERNAME, userService.tryCreateUser(createDummyUserRequestWithAlreadyExistingUserName()));
+        assertEquals(UserCreationStatus.MISSING_CREDENTIALS, userService.tryCreateUser(createDummyUserRequestWithoutEmailAndUserName()));
+    }
+
+    @Test
+    @DisplayName("Check-first create reports a save that lost a race on the unique index as a duplicate")
+    void checkAndSaveUserWithConcurrentDuplicate() {
+        userProperties.getCreate().setInsertFirst(false);
+        try {
+            when(userRepository.save(any(User.class))).thenThrow(duplicateKeyException("email"));
+            assertEquals(UserCreationStatus.DUPLICATE_EMAIL, userService.tryCreateUser(createDummyUserRequestWithFullInformation()));
+            verify(userRepository).findUserByUserName("dummyUser");
+            verify(userRepository).findUserByEmail("dummy@dummy.com");
+        } finally {
+            userProperties.getCreate().setInsertFirst(true);
+        }
+    }
+
+    @Test
+    @DisplayName("Create users in batch")
+    void createUsers() {
+        UserRequest valid = createDummyUserRequestWithFullInformation();
+        UserRequest sameUserNameInBatch = createDummyUserRequestWithFullInformation();
+        sameUserNameInBatch.setEmail("other@dummy.com");
+        UserRequest existingEmail = createDummyUserRequestWithAlreadyExistingEmail();
+        UserRequest missingCredentials = createDummyUserRequestWithoutEmailAndUserName();
+        when(userRepository.findAllByEmailIn(anyCollection()))
+                .thenReturn(List.of(User.builder().email(existingEmail.getEmail()).build()));
+
+        List<UserCreationResult> results = userService.createUsers(List.of(valid, sameUserNameInBatch, existingEmail, missingCredentials));
+
+        assertEquals(UserCreationStatus.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getId());
+        assertEquals(UserCreationStatus.DUPLICATE_USERNAME, results.get(1).getStatus());
+        assertEquals(UserCreationStatus.DUPLICATE_EMAIL, results.get(2).getStatus());
+        assertEquals(UserCreationStatus.MISSING_CREDENTIALS, results.get(3).getStatus());
+        verify(userRepository, times(1)).findAllByUserNameIn(anyCollection());
+        verify(userRepository, times(1)).findAllByEmailIn(anyCollection());
+        verify(userRepository).insertUnordered(argThat(users -> users.size() == 1));
+    }
+
+    @Test
+    @DisplayName("Create users in batch when an insert loses a race on the unique index")
+    void createUsersWithConcurrentDuplicate() {
+        UserRequest userRequest = createDummyUserRequestWithFullInformation();
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of(0, DuplicateKeyField.EMAIL));
+
+        List<UserCreationResult> results = userService.createUsers(List.of(userRequest));
+
+        assertEquals(UserCreationStatus.DUPLICATE_EMAIL, results.get(0).getStatus());
+        assertNull(results.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Create users in batch reports an id clash as a failure, not as created")
+    void createUsersWithIdClash() {
+        UserRequest userRequest = createDummyUserRequestWithFullInformation();
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of(0, DuplicateKeyField.ID));
+
+        List<UserCreationResult> results = userService.createUsers(List.of(userRequest));
+
+        assertEquals(UserCreationStatus.FAILED, results.get(0).getStatus());
+        assertEquals(DUPLICATE_ID_EXCEPTION_MESSAGE, results.get(0).getMessage());
+        assertNull(results.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Look up users by userName and email")
+    void lookupUsers() {
+        User user = createDummyUser();
+        when(userRepository.findUserResponsesByUserNameIn(anyCollection())).thenReturn(List.of(UserMapper.mapUserToUserResponse(user)));
+        UserLookupRequest userLookupRequest = UserLookupRequest.builder()
+                .userNames(List.of("dummyUser", "unknown", "dummyUser"))
+                .emails(List.of("unknown@dummy.com"))
+                .build();
+
+        UserLookupResponse userLookupResponse = userService.lookupUsers(userLookupRequest);
+
+        assertEquals(user, mapToUser(userLookupResponse.getUsersByUserName().get("dummyUser")));
+        assertEquals(List.of("unknown"), userLookupResponse.getMissingUserNames());
+        assertEquals(List.of("unknown@dummy.com"), userLookupResponse.getMissingEmails());
+        verify(userRepository, times(1)).findUserResponsesByUserNameIn(anyCollection());
+        verify(userRepository, times(1)).findUserResponsesByEmailIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Search finds created users by userName and email prefix without querying")
+    void searchUsers() {
+        UserRequest userRequest = createDummyUserRequestWithFullInformation();
+        userRequest.setUserName("searchable");
+        userRequest.setEmail("searchable@dummy.com");
+        userService.createUsers(List.of(userRequest));
+
+        UserSearchResponse byUserName = userService.searchUsers("search", 10, "userName");
+        UserSearchResponse byEmail = userService.searchUsers("searchable@", 10, "email");
+
+        assertEquals(List.of("searchable"), byUserName.getMatches());
+        assertEquals(List.of("searchable@dummy.com"), byEmail.getMatches());
+        assertEquals("email", byEmail.getField());
+        verify(userRepository, never()).findUserResponseByUserName(anyString());
+    }
+
+    @Test
+    @DisplayName("Search rejects a blank prefix, an out of range limit and an unknown field")
+    void searchUsersWithInvalidRequest() {
+        assertThrows(InvalidRequestException.class, () -> userService.searchUsers(" ", 10, "userName"));
+        assertThrows(InvalidRequestException.class, () -> userService.searchUsers("dummy", 0, "userName"));
+        assertThrows(InvalidRequestException.class, () -> userService.searchUsers("dummy", 101, "userName"));
+        assertThrows(InvalidRequestException.class, () -> userService.searchUsers("dummy", 10, "phoneNumber"));
+    }
+
+    @Test
+    @DisplayName("Version check reads only the id and version")
+    void findUserVersion() {
+        when(userRepository.findUserVersionByUserName("dummyUser")).thenReturn(UserResponse.builder().id("1").version(4L).build());
+
+        assertEquals(4L, userService.findUserVersion("dummyUser").orElseThrow().getVersion());
+        assertTrue(userService.findUserVersion("unknown").isEmpty());
+        verify(userRepository, never()).findUserResponseByUserName(anyString());
+    }
+
+    private DuplicateKeyException duplicateKeyException(String index) {
+        return new DuplicateKeyException("E11000 duplicate key error collection: springboot.users index: " + index
+                + " dup key: { " + index + ": \"already.exists\" }");
     }
 
     private UserRequest createDummyUserRequestWithoutEmailAndUserName() {
@@ -0,0 +1,82 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.events.UsersCreatedEvent;
+import com.example.unit_test.models.User;
+import com.example.unit_test.repositories.InMemoryUserRepository;
+import com.example.unit_test.repositories.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserSnapshotTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("A restarted instance finds users in the written snapshot without asking the repository")
+    void servesFromSnapshotAfterRestart() {
+        UserRepository userRepository = new InMemoryUserRepository();
+        userRepository.insert(user("user0"));
+        UserSnapshot first = new UserSnapshot(userRepository, properties());
+        first.start();
+        first.onUsersCreated(new UsersCreatedEvent(List.of(userRepository.insert(user("user1")))));
+        first.stop();
+
+        UserRepository unused = mock(UserRepository.class);
+        UserSnapshot restarted = new UserSnapshot(unused, properties());
+        restarted.start();
+        try {
+            assertEquals("user0@dummy.com", restarted.find("user0").getEmail());
+            assertEquals(0L, restarted.find("user1").getVersion());
+            assertNull(restarted.find("missing"));
+        } finally {
+            restarted.stop();
+        }
+        verify(unused, never()).findUserResponseByUserName(anyString());
+    }
+
+    @Test
+    @DisplayName("Users created elsewhere after the snapshot are picked up by a refresh and kept by the next write")
+    void refreshesIncrementally() {
+        UserRepository userRepository = new InMemoryUserRepository();
+        userRepository.insert(user("user0"));
+        UserSnapshot snapshot = new UserSnapshot(userRepository, properties());
+        assertTrue(snapshot.write());
+        userRepository.insert(user("user1"));
+        assertNull(snapshot.find("user1"));
+
+        snapshot.refresh();
+        assertEquals("user1@dummy.com", snapshot.find("user1").getEmail());
+        assertTrue(snapshot.write());
+
+        UserSnapshot restarted = new UserSnapshot(mock(UserRepository.class), properties());
+        restarted.start();
+        try {
+            assertNotNull(restarted.find("user0"));
+            assertNotNull(restarted.find("user1"));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    private UserProperties properties() {
+        UserProperties userProperties = new UserProperties();
+        userProperties.getSnapshot().setEnabled(true);
+        userProperties.getSnapshot().setFile(directory.resolve("user-snapshot.bin").toString());
+        userProperties.getSnapshot().setRefreshInterval(Duration.ofHours(1));
+        userProperties.getSnapshot().setWriteInterval(Duration.ofHours(1));
+        return userProperties;
+    }
+
+    private static User user(String userName) {
+        return User.builder().userName(userName).email(userName + "@dummy.com").build();
+    }
+}
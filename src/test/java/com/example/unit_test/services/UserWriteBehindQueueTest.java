@@ -0,0 +1,157 @@
+package com.example.unit_test.services;
+
+import com.example.unit_test.config.UserProperties;
+import com.example.unit_test.dto.UserCreationResult;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.example.unit_test.dto.UserRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserWriteBehindQueueTest {
+
+    @Test
+    @DisplayName("Accepted requests are written in one batch and flushed on stop")
+    void flushesOnStop() {
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> created(invocation.getArgument(0)));
+        UserProperties properties = new UserProperties();
+        properties.getCreate().getAsync().setEnabled(true);
+        properties.getCreate().getAsync().setMaxDelay(Duration.ofSeconds(10));
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(userService, properties);
+        queue.start();
+
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UserCreationResult pending = queue.submit(UserRequest.builder().userName("user" + i).build()).orElseThrow();
+            assertEquals(UserCreationStatus.PENDING, pending.getStatus());
+            requestIds.add(pending.getRequestId());
+        }
+        queue.stop();
+
+        verify(userService, times(1)).createUsers(anyList());
+        for (String requestId : requestIds) {
+            assertEquals(UserCreationStatus.CREATED, queue.status(requestId).orElseThrow().getStatus());
+        }
+        assertTrue(queue.submit(UserRequest.builder().userName("late").build()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A full queue turns requests away")
+    void rejectsWhenFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return created(invocation.getArgument(0));
+        });
+        UserProperties properties = new UserProperties();
+        properties.getCreate().getAsync().setEnabled(true);
+        properties.getCreate().getAsync().setQueueCapacity(1);
+        properties.getCreate().getAsync().setMaxDelay(Duration.ZERO);
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(userService, properties);
+        queue.start();
+
+        assertTrue(queue.submit(UserRequest.builder().userName("user0").build()).isPresent());
+        writing.await();
+        // the writer is busy with user0, user1 fills the queue
+        assertTrue(queue.submit(UserRequest.builder().userName("user1").build()).isPresent());
+        assertTrue(queue.submit(UserRequest.builder().userName("user2").build()).isEmpty());
+        release.countDown();
+        queue.stop();
+    }
+
+    @Test
+    @DisplayName("Outcomes are dropped past the configured maximum")
+    void boundsOutcomes() throws InterruptedException {
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> created(invocation.getArgument(0)));
+        UserProperties properties = new UserProperties();
+        properties.getCreate().getAsync().setEnabled(true);
+        properties.getCreate().getAsync().setQueueCapacity(10);
+        properties.getCreate().getAsync().setBatchSize(10);
+        properties.getCreate().getAsync().setStatusMaximumSize(50);
+        properties.getCreate().getAsync().setMaxDelay(Duration.ZERO);
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(userService, properties);
+        queue.start();
+
+        for (int i = 0; i < 1_000; i++) {
+            // a full queue is waited out, every request is accepted eventually
+            while (queue.submit(UserRequest.builder().userName("user" + i).build()).isEmpty()) {
+                Thread.sleep(1);
+            }
+        }
+        queue.stop();
+
+        verify(userService, atLeast(100)).createUsers(anyList());
+        assertTrue(queue.statusCount() <= 50, "kept " + queue.statusCount() + " outcomes");
+    }
+
+    @Test
+    @DisplayName("Pending requests survive a full outcome store and the newest outcomes are kept")
+    void keepsPendingAndNewestOutcomes() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        UserService userService = mock(UserService.class);
+        when(userService.createUsers(anyList())).thenAnswer(invocation -> {
+            List<UserRequest> userRequests = invocation.getArgument(0);
+            if (userRequests.get(0).getUserName().equals("late")) {
+                release.await();
+            }
+            return created(userRequests);
+        });
+        UserProperties properties = new UserProperties();
+        properties.getCreate().getAsync().setEnabled(true);
+        properties.getCreate().getAsync().setStatusMaximumSize(2);
+        properties.getCreate().getAsync().setMaxDelay(Duration.ZERO);
+        UserWriteBehindQueue queue = new UserWriteBehindQueue(userService, properties);
+        queue.start();
+
+        List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String requestId = queue.submit(UserRequest.builder().userName("user" + i).build()).orElseThrow().getRequestId();
+            requestIds.add(requestId);
+            while (queue.status(requestId).orElseThrow().getStatus() == UserCreationStatus.PENDING) {
+                Thread.sleep(1);
+            }
+        }
+        String late = queue.submit(UserRequest.builder().userName("late").build()).orElseThrow().getRequestId();
+        List<String> waiting = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waiting.add(queue.submit(UserRequest.builder().userName("waiting" + i).build()).orElseThrow().getRequestId());
+        }
+
+        assertTrue(queue.status(requestIds.get(0)).isEmpty());
+        assertTrue(queue.status(requestIds.get(1)).isEmpty());
+        assertEquals(UserCreationStatus.CREATED, queue.status(requestIds.get(2)).orElseThrow().getStatus());
+        assertEquals(UserCreationStatus.CREATED, queue.status(requestIds.get(3)).orElseThrow().getStatus());
+        assertEquals(UserCreationStatus.PENDING, queue.status(late).orElseThrow().getStatus());
+        for (String requestId : waiting) {
+            assertEquals(UserCreationStatus.PENDING, queue.status(requestId).orElseThrow().getStatus());
+        }
+        release.countDown();
+        queue.stop();
+        assertEquals(UserCreationStatus.CREATED, queue.status(waiting.get(4)).orElseThrow().getStatus());
+    }
+
+    private static List<UserCreationResult> created(List<UserRequest> userRequests) {
+        List<UserCreationResult> results = new ArrayList<>();
+        for (int i = 0; i < userRequests.size(); i++) {
+            results.add(UserCreationResult.builder()
+                    .index(i)
+                    .userName(userRequests.get(i).getUserName())
+                    .status(UserCreationStatus.CREATED)
+                    .build());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.unit_test.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("Requests over the limit are rejected until a slot is released")
+    void rejectsOverLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("The limit grows under steady latency and shrinks when latency rises")
+    void followsLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertTrue(limiter.getLimit() < grown / 2, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 5);
+    }
+
+    @Test
+    @DisplayName("An idle limiter does not grow")
+    void idleDoesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 100);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvUserRecordParserTest {
+
+    @Test
+    @DisplayName("Columns follow the header, quoted fields keep commas and quotes")
+    void parse() {
+        CsvUserRecordParser parser = CsvUserRecordParser.fromHeader(bytes("email,unknown,userName,lastName"), "email,unknown,userName,lastName".length());
+        String line = "dummy@dummy.com,ignored,\"du,\"\"mmy\"\"\",";
+        UserRequest userRequest = parser.parse(bytes(line), bytes(line).length);
+        assertEquals(UserRequest.builder().email("dummy@dummy.com").userName("du,\"mmy\"").build(), userRequest);
+    }
+
+    @Test
+    @DisplayName("Lines that do not match the header are rejected")
+    void malformed() {
+        CsvUserRecordParser parser = CsvUserRecordParser.fromHeader(bytes("userName,email"), 14);
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("dummy"), 5));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(bytes("\"dummy,x"), 8));
+        assertThrows(IllegalArgumentException.class, () -> CsvUserRecordParser.fromHeader(bytes("firstName"), 9));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+    private final UserResponse user = UserResponse.builder().id("abc").version(2L).build();
+
+    @Test
+    @DisplayName("The tag changes with the version and the wire format")
+    void of() {
+        assertEquals("\"abc-2\"", ETags.of(user, false));
+        assertEquals("\"abc-2+cbor\"", ETags.of(user, true));
+        assertEquals("\"abc-0\"", ETags.of(UserResponse.builder().id("abc").build(), false));
+    }
+
+    @Test
+    @DisplayName("If-None-Match lists, wildcards and weak tags are matched")
+    void matches() {
+        String eTag = ETags.of(user, false);
+        assertTrue(ETags.matches("\"abc-2\"", eTag));
+        assertTrue(ETags.matches("\"abc-1\", W/\"abc-2\"", eTag));
+        assertTrue(ETags.matches("*", eTag));
+        assertFalse(ETags.matches("\"abc-1\"", eTag));
+        assertFalse(ETags.matches("*", null));
+    }
+}
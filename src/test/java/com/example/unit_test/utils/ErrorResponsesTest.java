@@ -0,0 +1,60 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.ErrorResponse;
+import com.example.unit_test.dto.UserCreationStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import static com.example.unit_test.utils.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponsesTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MappingJackson2CborHttpMessageConverter cborHttpMessageConverter = new MappingJackson2CborHttpMessageConverter();
+    private final ErrorResponses errorResponses = new ErrorResponses(objectMapper, cborHttpMessageConverter, meterRegistry);
+
+    @Test
+    @DisplayName("Not found body quotes the userName")
+    void userNotFound() throws Exception {
+        String userName = "du\"mmy\\é";
+        ResponseEntity<byte[]> response = errorResponses.userNotFound(userName, null);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        ErrorResponse errorResponse = objectMapper.readValue(response.getBody(), ErrorResponse.class);
+        assertEquals(ErrorResponses.notFoundMessage(userName), errorResponse.getMessage());
+        assertEquals(1, meterRegistry.get("user.api.errors").tag("status", "404").counter().count());
+    }
+
+    @Test
+    @DisplayName("Rejections are served from the pre-encoded bodies")
+    void rejected() throws Exception {
+        ResponseEntity<byte[]> first = errorResponses.rejected(UserCreationStatus.DUPLICATE_EMAIL, MediaType.APPLICATION_JSON_VALUE);
+        ResponseEntity<byte[]> second = errorResponses.rejected(UserCreationStatus.DUPLICATE_EMAIL, MediaType.APPLICATION_JSON_VALUE);
+        assertEquals(HttpStatus.CONFLICT, first.getStatusCode());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(EMAIL_ALREADY_EXISTS_EXCEPTION_MESSAGE,
+                objectMapper.readValue(first.getBody(), ErrorResponse.class).getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, errorResponses.rejected(UserCreationStatus.MISSING_CREDENTIALS, null).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("CBOR is served when the Accept header prefers it")
+    void cborWhenPreferred() throws Exception {
+        ObjectMapper cborMapper = cborHttpMessageConverter.getObjectMapper();
+        ResponseEntity<byte[]> response = errorResponses.rejected(UserCreationStatus.DUPLICATE_USERNAME, "application/json;q=0.5, application/cbor");
+        assertEquals(MediaType.APPLICATION_CBOR, response.getHeaders().getContentType());
+        assertEquals(USERNAME_ALREADY_EXISTS_EXCEPTION_MESSAGE, cborMapper.readValue(response.getBody(), ErrorResponse.class).getMessage());
+
+        response = errorResponses.userNotFound("dummy", "application/cbor");
+        assertEquals(ErrorResponses.notFoundMessage("dummy"), cborMapper.readValue(response.getBody(), ErrorResponse.class).getMessage());
+
+        response = errorResponses.userNotFound("dummy", "application/cbor;q=0.5, */*");
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    }
+}
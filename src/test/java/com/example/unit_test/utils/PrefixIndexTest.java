@@ -0,0 +1,60 @@
+package com.example.unit_test.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @Test
+    @DisplayName("Matches come back in order from both the base and the added values")
+    void startingWith() {
+        PrefixIndex index = new PrefixIndex(List.of("dummy2", "other", "dummy0", "dummy0"));
+        index.add("dummy1");
+        index.add("dum");
+        assertEquals(List.of("dum", "dummy0", "dummy1", "dummy2"), index.startingWith("dum", 10));
+        assertEquals(List.of("dum", "dummy0"), index.startingWith("dum", 2));
+        assertEquals(List.of(), index.startingWith("x", 10));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    @DisplayName("Added values survive the merge into the sorted array")
+    void mergesAddedValues() {
+        PrefixIndex index = new PrefixIndex();
+        for (int i = 0; i < 5_000; i++) {
+            index.add("user" + i);
+        }
+        assertEquals(5_000, index.size());
+        assertEquals(List.of("user4999"), index.startingWith("user4999", 10));
+        assertEquals(111, index.startingWith("user12", 1_000).size());
+    }
+
+    @Test
+    @DisplayName("Readers racing with merges never lose a value that was already added")
+    void readsDuringMerges() throws InterruptedException {
+        PrefixIndex index = new PrefixIndex();
+        AtomicInteger added = new AtomicInteger();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                index.add("user" + i);
+                added.set(i + 1);
+            }
+        });
+        while (writer.isAlive()) {
+            int count = added.get();
+            if (count > 0) {
+                String last = "user" + (count - 1);
+                assertTrue(index.startingWith(last, 1_000).contains(last), last + " went missing");
+                assertTrue(index.size() >= count);
+            }
+        }
+        writer.join();
+        assertEquals(20_000, index.size());
+        assertEquals(20_000, index.startingWith("user", 20_000).size());
+    }
+}
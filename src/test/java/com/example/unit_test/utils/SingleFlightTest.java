@@ -0,0 +1,79 @@
+package com.example.unit_test.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    @DisplayName("Concurrent calls for one key share a single load")
+    void sharesLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("dummy", key -> {
+                calls.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return key + "!";
+            }));
+            loading.await();
+            Future<String> follower = executor.submit(() -> singleFlight.execute("dummy", key -> {
+                calls.incrementAndGet();
+                return "own load";
+            }));
+            while (singleFlight.shared() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            assertEquals("dummy!", leader.get());
+            assertEquals("dummy!", follower.get());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.loads());
+        assertEquals(1, singleFlight.shared());
+        // finished loads are not remembered
+        assertEquals("again", singleFlight.execute("dummy", key -> "again"));
+    }
+
+    @Test
+    @DisplayName("Waiting calls get the exception of the shared load")
+    void sharesException() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("dummy", key -> {
+                loading.countDown();
+                await(release);
+                throw new UserNotFoundException(key);
+            }));
+            loading.await();
+            Future<String> follower = executor.submit(() -> singleFlight.execute("dummy", key -> key));
+            while (singleFlight.shared() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            assertInstanceOf(UserNotFoundException.class, assertThrows(ExecutionException.class, leader::get).getCause());
+            assertInstanceOf(UserNotFoundException.class, assertThrows(ExecutionException.class, follower::get).getCause());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
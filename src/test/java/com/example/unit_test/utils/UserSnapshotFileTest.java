@@ -0,0 +1,58 @@
+package com.example.unit_test.utils;
+
+import com.example.unit_test.dto.UserResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSnapshotFileTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Every written user is found by userName and nothing else is")
+    void writeAndFind() throws IOException {
+        List<UserResponse> users = IntStream.range(0, 1_000)
+                .mapToObj(i -> UserResponse.builder()
+                        .id(String.format("%024x", i))
+                        .userName("user" + i)
+                        .email(i % 2 == 0 ? "user" + i + "@dummy.com" : null)
+                        .firstName("Fïrst")
+                        .version((long) i)
+                        .build())
+                .toList();
+
+        UserSnapshotFile snapshot = UserSnapshotFile.write(directory.resolve("users.bin"), users.iterator());
+
+        assertEquals(1_000, snapshot.size());
+        assertEquals(String.format("%024x", 999), snapshot.lastId());
+        for (UserResponse user : users) {
+            UserResponse found = snapshot.find(user.getUserName());
+            assertEquals(user.getId(), found.getId());
+            assertEquals(user.getEmail(), found.getEmail());
+            assertEquals("Fïrst", found.getFirstName());
+            assertNull(found.getLastName());
+            assertEquals(user.getVersion(), found.getVersion());
+        }
+        assertNull(snapshot.find("user1000"));
+        assertNull(snapshot.find(""));
+        assertEquals(1_000, UserSnapshotFile.open(directory.resolve("users.bin")).stream().count());
+        assertEquals(1, Files.list(directory).count());
+    }
+
+    @Test
+    @DisplayName("A file that is not a snapshot is refused")
+    void rejectsOtherFiles() throws IOException {
+        Path file = Files.writeString(directory.resolve("users.bin"), "not a snapshot".repeat(20));
+
+        assertThrows(IOException.class, () -> UserSnapshotFile.open(file));
+    }
+}